@@ -0,0 +1,65 @@
+/*
+ * Copyright (C) 2015 Fantom Digital Pty. Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package au.com.fantomdigital.fantomeventj.benchmarks;
+
+import au.com.fantomdigital.fantomeventj.EventDispatcher;
+import au.com.fantomdigital.fantomeventj.EventListener;
+import au.com.fantomdigital.fantomeventj.Subscribe;
+
+/**
+ * BenchmarkHandler: Target object with a trivial handler method, one instance per registered listener
+ * since listeners are equal when they share method and target.
+ *
+ * Project: fantomeventj-benchmarks
+ *
+ * @author sfdi
+ * @date 17/10/26
+ */
+public class BenchmarkHandler {
+    /** Plain field so the handler has a side effect the JIT can not remove, without adding a memory fence. */
+    public long handled;
+
+    @Subscribe(name = "event0")
+    public void onEvent(BenchmarkEvent event) {
+        handled++;
+    }
+
+    /**
+     * Creates {@code count} listeners, the i-th listening to the name {@code "event" + (i % names)}.
+     */
+    public static EventListener[] createListeners(int count, int names, Object target) throws NoSuchMethodException {
+        EventListener[] listeners = new EventListener[count];
+        for (int i = 0; i < count; i++) {
+            listeners[i] = new EventListener(new BenchmarkEvent(name(i % names), target), new BenchmarkHandler(),
+                    "onEvent");
+        }
+        return listeners;
+    }
+
+    /**
+     * Registers every listener of {@code listeners} on {@code dispatcher}.
+     */
+    public static void register(EventDispatcher dispatcher, EventListener[] listeners) {
+        for (EventListener listener : listeners) {
+            dispatcher.addEventListener(listener.getEvent(), listener);
+        }
+    }
+
+    public static String name(int index) {
+        return "event" + index;
+    }
+}
@@ -0,0 +1,60 @@
+/*
+ * Copyright (C) 2015 Fantom Digital Pty. Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package au.com.fantomdigital.fantomeventj.benchmarks;
+
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.ChainedOptionsBuilder;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * BenchmarkMain: Runs the benchmarks matching a pattern once per thread count, with the GC profiler attached
+ * so allocation per operation is reported next to throughput and average time.
+ *
+ * <pre>
+ * java -jar target/benchmarks.jar [pattern] [threads,threads...]
+ * java -jar target/benchmarks.jar Dispatch 1,2,4,8
+ * </pre>
+ *
+ * <p>Plain JMH command lines work as well through {@code java -cp target/benchmarks.jar org.openjdk.jmh.Main}.</p>
+ *
+ * Project: fantomeventj-benchmarks
+ *
+ * @author sfdi
+ * @date 17/10/26
+ */
+public final class BenchmarkMain {
+
+    private BenchmarkMain() {
+        // No instances.
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        String pattern = args.length > 0 ? args[0] : ".*Benchmark.*";
+        String threads = args.length > 1 ? args[1] : "1";
+
+        for (String count : threads.split(",")) {
+            ChainedOptionsBuilder options = new OptionsBuilder()
+                    .include(pattern)
+                    .threads(Integer.parseInt(count.trim()))
+                    .addProfiler(GCProfiler.class);
+
+            new Runner(options.build()).run();
+        }
+    }
+}
@@ -0,0 +1,116 @@
+/*
+ * Copyright (C) 2015 Fantom Digital Pty. Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package au.com.fantomdigital.fantomeventj.benchmarks;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import au.com.fantomdigital.fantomeventj.EventDispatcher;
+import au.com.fantomdigital.fantomeventj.IBaseEvent;
+import au.com.fantomdigital.fantomeventj.LooperBinder;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * DispatchBenchmark: Cost of {@link EventDispatcher#dispatchEvent(au.com.fantomdigital.fantomeventj.IBaseEvent)}
+ * for a growing number of listeners spread over a number of event names of the same event class.
+ *
+ * <p>Each benchmark thread has its own dispatcher and handlers, so the plain handler counters are never written by
+ * two threads.</p>
+ *
+ * Project: fantomeventj-benchmarks
+ *
+ * @author sfdi
+ * @date 17/10/26
+ */
+@State(Scope.Thread)
+@BenchmarkMode({Mode.Throughput, Mode.AverageTime})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class DispatchBenchmark {
+    /** Events in a burst. */
+    private static final int BURST = 16;
+
+    @Param({"1", "10", "1000"})
+    public int listeners;
+
+    @Param({"1", "10"})
+    public int names;
+
+    private EventDispatcher _dispatcher;
+    private BenchmarkEvent _matching;
+    private BenchmarkEvent _unmatched;
+    private List<IBaseEvent> _burst;
+
+    @Setup
+    public void setUp() throws NoSuchMethodException {
+        _dispatcher = new EventDispatcher(LooperBinder.ANY, this);
+        BenchmarkHandler.register(_dispatcher, BenchmarkHandler.createListeners(listeners, names, this));
+
+        _matching = new BenchmarkEvent(BenchmarkHandler.name(0), this);
+        _unmatched = new BenchmarkEvent("unmatched", this);
+        _burst = new ArrayList<IBaseEvent>();
+        for (int i = 0; i < BURST; i++) {
+            _burst.add(new BenchmarkEvent(BenchmarkHandler.name(0), this));
+        }
+    }
+
+    @TearDown
+    public void tearDown() {
+        _dispatcher.destroy();
+    }
+
+    /** Reaches {@code listeners / names} listeners. */
+    @Benchmark
+    public void dispatch() {
+        _dispatcher.dispatchEvent(_matching);
+    }
+
+    /** Reaches no listener, the lookup cost alone. */
+    @Benchmark
+    public void dispatchUnmatched() {
+        _dispatcher.dispatchEvent(_unmatched);
+    }
+
+    /** A burst of matching events, one dispatch each. */
+    @Benchmark
+    public void dispatchBurst() {
+        for (int i = 0; i < BURST; i++) {
+            _dispatcher.dispatchEvent(_burst.get(i));
+        }
+    }
+
+    /** The same burst as {@link #dispatchBurst()} in a single batch. */
+    @Benchmark
+    public void dispatchBatch() {
+        _dispatcher.dispatchEvents(_burst);
+    }
+}
@@ -0,0 +1,93 @@
+/*
+ * Copyright (C) 2015 Fantom Digital Pty. Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package au.com.fantomdigital.fantomeventj.benchmarks;
+
+import java.util.concurrent.TimeUnit;
+
+import au.com.fantomdigital.fantomeventj.EventDispatcher;
+import au.com.fantomdigital.fantomeventj.EventListener;
+import au.com.fantomdigital.fantomeventj.LooperBinder;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * NestedDispatchBenchmark: Cost of events dispatched from inside a handler, which are queued and drained by
+ * {@code processQueue} once the outer event has been delivered.
+ *
+ * Project: fantomeventj-benchmarks
+ *
+ * @author sfdi
+ * @date 17/10/26
+ */
+@State(Scope.Thread)
+@BenchmarkMode({Mode.Throughput, Mode.AverageTime})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class NestedDispatchBenchmark {
+    /** Inner events each outer handler dispatches. */
+    @Param({"1", "10", "100"})
+    public int nested;
+
+    /** Listeners of the inner event. */
+    @Param({"1", "10"})
+    public int listeners;
+
+    private EventDispatcher _dispatcher;
+    private BenchmarkEvent _outer;
+    private BenchmarkEvent _inner;
+
+    @Setup
+    public void setUp() throws NoSuchMethodException {
+        _dispatcher = new EventDispatcher(LooperBinder.ANY, this);
+        _outer = new BenchmarkEvent("outer", this);
+        _inner = new BenchmarkEvent("inner", this);
+
+        _dispatcher.addEventListener(_outer, new EventListener(_outer, this, "onOuter"));
+        for (int i = 0; i < listeners; i++) {
+            _dispatcher.addEventListener(_inner, new EventListener(_inner, new BenchmarkHandler(), "onEvent"));
+        }
+    }
+
+    @TearDown
+    public void tearDown() {
+        _dispatcher.destroy();
+    }
+
+    public void onOuter(BenchmarkEvent event) {
+        for (int i = 0; i < nested; i++) {
+            _dispatcher.dispatchEvent(_inner);
+        }
+    }
+
+    @Benchmark
+    public void dispatchNested() {
+        _dispatcher.dispatchEvent(_outer);
+    }
+}
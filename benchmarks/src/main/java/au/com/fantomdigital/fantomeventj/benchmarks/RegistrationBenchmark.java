@@ -0,0 +1,126 @@
+/*
+ * Copyright (C) 2015 Fantom Digital Pty. Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package au.com.fantomdigital.fantomeventj.benchmarks;
+
+import java.util.concurrent.TimeUnit;
+
+import au.com.fantomdigital.fantomeventj.EventDispatcher;
+import au.com.fantomdigital.fantomeventj.EventListener;
+import au.com.fantomdigital.fantomeventj.LooperBinder;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * RegistrationBenchmark: Cost of {@code addEventListener}, {@code removeEventListener} and
+ * {@code removeAllEventListener} with a number of listeners already registered.
+ *
+ * Project: fantomeventj-benchmarks
+ *
+ * @author sfdi
+ * @date 17/10/26
+ */
+@State(Scope.Thread)
+@BenchmarkMode({Mode.Throughput, Mode.AverageTime})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class RegistrationBenchmark {
+    /** Short lived listeners in a churn burst. */
+    private static final int CHURN = 16;
+
+    @Param({"1", "10", "1000"})
+    public int listeners;
+
+    @Param({"1", "10"})
+    public int names;
+
+    private EventDispatcher _dispatcher;
+    private EventListener[] _listeners;
+    private EventListener _churn;
+    private EventListener[] _churnBurst;
+    private BenchmarkEvent _event;
+    private BenchmarkHandler _subscriber;
+
+    @Setup
+    public void setUp() throws NoSuchMethodException {
+        _dispatcher = new EventDispatcher(LooperBinder.ANY, this);
+        _listeners = BenchmarkHandler.createListeners(listeners, names, this);
+        _churn = BenchmarkHandler.createListeners(1, 1, this)[0];
+        _churnBurst = BenchmarkHandler.createListeners(CHURN, 1, this);
+        _event = new BenchmarkEvent(BenchmarkHandler.name(0), this);
+        _subscriber = new BenchmarkHandler();
+
+        BenchmarkHandler.register(_dispatcher, _listeners);
+    }
+
+    @TearDown
+    public void tearDown() {
+        _dispatcher.destroy();
+    }
+
+    /** One short lived listener joining and leaving {@code listeners} registered ones. */
+    @Benchmark
+    public void addThenRemove() {
+        _dispatcher.addEventListener(_churn.getEvent(), _churn);
+        _dispatcher.removeEventListener(_churn.getEvent(), _churn);
+    }
+
+    /** A burst of short lived listeners joining and leaving before a dispatch, so the snapshot is rebuilt once. */
+    @Benchmark
+    public void churnThenDispatch() {
+        for (int i = 0; i < CHURN; i++) {
+            _dispatcher.addEventListener(_churnBurst[i].getEvent(), _churnBurst[i]);
+        }
+        for (int i = 0; i < CHURN; i++) {
+            _dispatcher.removeEventListener(_churnBurst[i].getEvent(), _churnBurst[i]);
+        }
+        _dispatcher.dispatchEvent(_event);
+    }
+
+    /** Annotation registration of a target whose class metadata is already cached. */
+    @Benchmark
+    public void registerThenUnregister() {
+        _dispatcher.register(_subscriber);
+        _dispatcher.unregister(_subscriber);
+    }
+
+    /** Registering an already registered listener, which must be detected and ignored. */
+    @Benchmark
+    public void addDuplicate() {
+        EventListener last = _listeners[_listeners.length - 1];
+        _dispatcher.addEventListener(last.getEvent(), last);
+    }
+
+    /** Registering every listener then clearing the dispatcher. */
+    @Benchmark
+    public void registerAllThenRemoveAll() {
+        _dispatcher.removeAllEventListener();
+        BenchmarkHandler.register(_dispatcher, _listeners);
+    }
+}
@@ -0,0 +1,121 @@
+/*
+ * Copyright (C) 2015 Fantom Digital Pty. Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package au.com.fantomdigital.fantomeventj.benchmarks;
+
+import java.util.concurrent.TimeUnit;
+
+import au.com.fantomdigital.fantomeventj.DispatchExecutors;
+import au.com.fantomdigital.fantomeventj.EventListener;
+import au.com.fantomdigital.fantomeventj.ShardedEventDispatcher;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.ThreadParams;
+
+/**
+ * ShardedDispatchBenchmark: Throughput of a {@link ShardedEventDispatcher} shared by every benchmark thread, for a
+ * number of stripes. One stripe is a plain event loop every thread funnels into.
+ *
+ * <p>Each thread dispatches a burst of events under its own name and waits until its listener received them, so an
+ * operation is a full trip through a stripe. Run it for a range of thread counts to see how throughput scales:</p>
+ *
+ * <pre>
+ * java -jar target/benchmarks.jar ShardedDispatch 1,2,4,8,16
+ * </pre>
+ *
+ * Project: fantomeventj-benchmarks
+ *
+ * @author sfdi
+ * @date 17/10/26
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ShardedDispatchBenchmark {
+    /** Events dispatched by a thread before it waits for them. */
+    private static final int BURST = 16;
+
+    @Param({"1", "4", "16"})
+    public int stripes;
+
+    private ShardedEventDispatcher _dispatcher;
+
+    @Setup
+    public void setUp() {
+        _dispatcher = new ShardedEventDispatcher(stripes, DispatchExecutors.daemonThreads("benchmark-stripe"),
+                "benchmark", this);
+        _dispatcher.start();
+    }
+
+    @TearDown
+    public void tearDown() {
+        _dispatcher.destroy();
+    }
+
+    /** A burst of events under the name of this thread, delivered before returning. */
+    @Benchmark
+    public long dispatchAndDeliver(Producer producer) {
+        BenchmarkEvent event = producer.event;
+        for (int i = 0; i < BURST; i++) {
+            _dispatcher.dispatchEvent(event);
+        }
+
+        long expected = producer.expected += BURST;
+        while (producer.handler.handled < expected) {
+            Thread.yield();
+        }
+        return expected;
+    }
+
+    /** Event, listener and progress of one benchmark thread. */
+    @State(Scope.Thread)
+    public static class Producer {
+        BenchmarkEvent event;
+        CountingHandler handler;
+        long expected;
+
+        @Setup
+        public void setUp(ShardedDispatchBenchmark benchmark, ThreadParams thread) throws NoSuchMethodException {
+            event = new BenchmarkEvent(BenchmarkHandler.name(thread.getThreadIndex()), benchmark);
+            handler = new CountingHandler();
+            benchmark._dispatcher.addEventListener(event, new EventListener(event, handler, "onEvent"));
+        }
+    }
+
+    /** Handler the dispatching thread can watch from another thread. */
+    public static class CountingHandler {
+        /** Only written by the consumer of its stripe. */
+        volatile long handled;
+
+        public void onEvent(BenchmarkEvent event) {
+            handled++;
+        }
+    }
+}
@@ -0,0 +1,282 @@
+/*
+ * Copyright (C) 2015 Fantom Digital Pty. Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package au.com.fantomdigital.fantomeventj.compiler;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import javax.annotation.processing.AbstractProcessor;
+import javax.annotation.processing.Messager;
+import javax.annotation.processing.RoundEnvironment;
+import javax.annotation.processing.SupportedAnnotationTypes;
+import javax.lang.model.SourceVersion;
+import javax.lang.model.element.Element;
+import javax.lang.model.element.ElementKind;
+import javax.lang.model.element.ExecutableElement;
+import javax.lang.model.element.Modifier;
+import javax.lang.model.element.NestingKind;
+import javax.lang.model.element.PackageElement;
+import javax.lang.model.element.TypeElement;
+import javax.lang.model.type.DeclaredType;
+import javax.lang.model.type.TypeKind;
+import javax.lang.model.type.TypeMirror;
+import javax.lang.model.util.ElementFilter;
+import javax.lang.model.util.Elements;
+import javax.lang.model.util.Types;
+import javax.tools.Diagnostic;
+
+import au.com.fantomdigital.fantomeventj.Subscribe;
+import au.com.fantomdigital.fantomeventj.SubscriberIndex;
+
+/**
+ * SubscribeProcessor: Generates a {@link SubscriberIndex} for every class declaring {@link Subscribe} methods,
+ * so registering it at runtime needs no reflection.
+ *
+ * <p>The index calls each handler directly, so it can only be generated when every handler of the class and
+ * its superclasses, their event classes and the class itself are reachable from its package. Otherwise a note
+ * is printed and the class keeps using reflection at runtime.</p>
+ *
+ * Project: fantomeventj-compiler
+ *
+ * @author sfdi
+ * @date 17/10/26
+ */
+@SupportedAnnotationTypes(SubscribeProcessor.SUBSCRIBE)
+public class SubscribeProcessor extends AbstractProcessor {
+    static final String SUBSCRIBE = "au.com.fantomdigital.fantomeventj.Subscribe";
+    private static final String EVENT = "au.com.fantomdigital.fantomeventj.IBaseEvent";
+
+    @Override public SourceVersion getSupportedSourceVersion() {
+        return SourceVersion.latestSupported();
+    }
+
+    @Override public boolean process(Set<? extends TypeElement> annotations, RoundEnvironment roundEnv) {
+        Map<TypeElement, List<ExecutableElement>> subscribers = new LinkedHashMap<TypeElement, List<ExecutableElement>>();
+
+        for (Element element : roundEnv.getElementsAnnotatedWith(Subscribe.class)) {
+            if (element.getKind() != ElementKind.METHOD) {
+                continue;
+            }
+
+            ExecutableElement method = (ExecutableElement) element;
+            if (!isHandler(method)) {
+                error(method, "Subscribe method must take a single IBaseEvent argument.");
+                continue;
+            }
+
+            TypeElement owner = (TypeElement) method.getEnclosingElement();
+            List<ExecutableElement> methods = subscribers.get(owner);
+            if (methods == null) {
+                methods = new ArrayList<ExecutableElement>();
+                subscribers.put(owner, methods);
+            }
+            methods.add(method);
+        }
+
+        for (TypeElement owner : subscribers.keySet()) {
+            generate(owner);
+        }
+        return false;
+    }
+
+    private void generate(TypeElement owner) {
+        Elements elements = processingEnv.getElementUtils();
+        Types types = processingEnv.getTypeUtils();
+        PackageElement pkg = elements.getPackageOf(owner);
+
+        if (!isReachable(owner, pkg)) {
+            note(owner, "Class is not reachable from its package, it will be registered by reflection.");
+            return;
+        }
+
+        List<ExecutableElement> handlers = handlers(owner);
+        for (ExecutableElement handler : handlers) {
+            TypeElement declaring = (TypeElement) handler.getEnclosingElement();
+            TypeElement event = (TypeElement) types.asElement(handler.getParameters().get(0).asType());
+
+            // protected members of another package are out of reach too, the index is not a subclass
+            Set<Modifier> modifiers = handler.getModifiers();
+            boolean visible = modifiers.contains(Modifier.PUBLIC)
+                    || !modifiers.contains(Modifier.PRIVATE) && elements.getPackageOf(declaring).equals(pkg);
+            if (!visible || !isReachable(declaring, pkg) || !isReachable(event, pkg)) {
+                note(handler, "Subscribe method can not be called from generated code, "
+                        + owner.getSimpleName() + " will be registered by reflection.");
+                return;
+            }
+        }
+
+        String binaryName = elements.getBinaryName(owner).toString();
+        String packageName = pkg.isUnnamed() ? "" : pkg.getQualifiedName().toString();
+        String indexName = (packageName.length() > 0 ? binaryName.substring(packageName.length() + 1) : binaryName)
+                + SubscriberIndex.SUFFIX;
+
+        try {
+            Writer writer = processingEnv.getFiler()
+                    .createSourceFile(packageName.length() > 0 ? packageName + "." + indexName : indexName, owner)
+                    .openWriter();
+            try {
+                writer.write(source(owner, packageName, indexName, handlers));
+            } finally {
+                writer.close();
+            }
+        } catch (IOException e) {
+            error(owner, "Could not write " + indexName + ": " + e.getMessage());
+        }
+    }
+
+    /**
+     * Subscribe methods of {@code owner} and its superclasses, leaving out the ones a subclass overrides.
+     */
+    private List<ExecutableElement> handlers(TypeElement owner) {
+        Elements elements = processingEnv.getElementUtils();
+        Types types = processingEnv.getTypeUtils();
+        List<ExecutableElement> handlers = new ArrayList<ExecutableElement>();
+
+        for (TypeElement type = owner; type != null; type = superclass(type, types)) {
+            for (ExecutableElement method : ElementFilter.methodsIn(type.getEnclosedElements())) {
+                if (method.getAnnotation(Subscribe.class) == null || !isHandler(method)) {
+                    continue;
+                }
+
+                boolean overridden = false;
+                for (ExecutableElement handler : handlers) {
+                    if (elements.overrides(handler, method, owner)) {
+                        overridden = true;
+                        break;
+                    }
+                }
+                if (!overridden) {
+                    handlers.add(method);
+                }
+            }
+        }
+        return handlers;
+    }
+
+    private String source(TypeElement owner, String packageName, String indexName, List<ExecutableElement> handlers) {
+        Types types = processingEnv.getTypeUtils();
+        String ownerName = types.erasure(owner.asType()).toString();
+
+        StringBuilder source = new StringBuilder();
+        source.append("// Generated by fantomeventj-compiler. Do not modify.\n");
+        if (packageName.length() > 0) {
+            source.append("package ").append(packageName).append(";\n\n");
+        }
+        source.append("import au.com.fantomdigital.fantomeventj.EventListener;\n");
+        source.append("import au.com.fantomdigital.fantomeventj.SubscriberIndex;\n");
+        source.append("import au.com.fantomdigital.fantomeventj.TargetEventInvoker;\n\n");
+        source.append("@SuppressWarnings(\"unchecked\")\n");
+        source.append("public final class ").append(indexName).append(" implements SubscriberIndex {\n");
+
+        StringBuilder listeners = new StringBuilder();
+        for (int i = 0; i < handlers.size(); i++) {
+            ExecutableElement handler = handlers.get(i);
+            TypeElement declaring = (TypeElement) handler.getEnclosingElement();
+            String declaringName = types.erasure(declaring.asType()).toString();
+            TypeMirror eventType = types.erasure(handler.getParameters().get(0).asType());
+            Subscribe subscribe = handler.getAnnotation(Subscribe.class);
+            String eventName = subscribe.name();
+            if (eventName.length() == 0) {
+                eventName = types.asElement(eventType).getSimpleName().toString();
+            }
+            String receiver = handler.getModifiers().contains(Modifier.STATIC) ? declaringName
+                    : "((" + ownerName + ") target)";
+
+            // Shared by every target, so weak listeners call it without keeping their target reachable.
+            source.append("    private static final TargetEventInvoker HANDLER_").append(i)
+                    .append(" = new TargetEventInvoker() {\n");
+            source.append("        public void invoke(Object target, Object event) throws Throwable {\n");
+            source.append("            ").append(receiver).append(".").append(handler.getSimpleName())
+                    .append("((").append(eventType).append(") event);\n");
+            source.append("        }\n");
+            source.append("    };\n\n");
+
+            listeners.append("            new EventListener(").append(eventType).append(".class, \"")
+                    .append(escape(eventName)).append("\", target, ").append(declaringName).append(".class, \"")
+                    .append(handler.getSimpleName()).append("\", HANDLER_").append(i).append(", ")
+                    .append(subscribe.priority()).append("),\n");
+        }
+
+        source.append("    public EventListener[] listeners(Object target) {\n");
+        source.append("        return new EventListener[] {\n");
+        source.append(listeners);
+        source.append("        };\n");
+        source.append("    }\n");
+        source.append("}\n");
+        return source.toString();
+    }
+
+    private boolean isHandler(ExecutableElement method) {
+        if (method.getParameters().size() != 1) {
+            return false;
+        }
+
+        Elements elements = processingEnv.getElementUtils();
+        Types types = processingEnv.getTypeUtils();
+        TypeMirror param = method.getParameters().get(0).asType();
+        TypeElement event = elements.getTypeElement(EVENT);
+        return param.getKind() == TypeKind.DECLARED && types.isAssignable(types.erasure(param), event.asType());
+    }
+
+    /**
+     * Whether generated code in {@code pkg} can name {@code type}.
+     */
+    private boolean isReachable(TypeElement type, PackageElement pkg) {
+        Elements elements = processingEnv.getElementUtils();
+        boolean samePackage = elements.getPackageOf(type).equals(pkg);
+
+        for (Element current = type; current instanceof TypeElement; current = current.getEnclosingElement()) {
+            TypeElement currentType = (TypeElement) current;
+            if (currentType.getNestingKind() == NestingKind.LOCAL || currentType.getNestingKind() == NestingKind.ANONYMOUS) {
+                return false;
+            }
+            Set<Modifier> modifiers = currentType.getModifiers();
+            if (modifiers.contains(Modifier.PRIVATE) || !samePackage && !modifiers.contains(Modifier.PUBLIC)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static TypeElement superclass(TypeElement type, Types types) {
+        TypeMirror superclass = type.getSuperclass();
+        if (superclass.getKind() != TypeKind.DECLARED) {
+            return null;
+        }
+
+        TypeElement element = (TypeElement) ((DeclaredType) superclass).asElement();
+        return element.getQualifiedName().contentEquals("java.lang.Object") ? null : element;
+    }
+
+    private static String escape(String value) {
+        return value.replace("\\", "\\\\").replace("\"", "\\\"");
+    }
+
+    private void note(Element element, String message) {
+        processingEnv.getMessager().printMessage(Diagnostic.Kind.NOTE, message, element);
+    }
+
+    private void error(Element element, String message) {
+        Messager messager = processingEnv.getMessager();
+        messager.printMessage(Diagnostic.Kind.ERROR, message, element);
+    }
+}
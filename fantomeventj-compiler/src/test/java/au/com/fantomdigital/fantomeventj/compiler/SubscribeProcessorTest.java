@@ -0,0 +1,203 @@
+package au.com.fantomdigital.fantomeventj.compiler;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.StringWriter;
+import java.net.URI;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.util.Arrays;
+import java.util.List;
+
+import javax.tools.JavaCompiler;
+import javax.tools.JavaFileObject;
+import javax.tools.SimpleJavaFileObject;
+import javax.tools.ToolProvider;
+
+import au.com.fantomdigital.fantomeventj.BaseEvent;
+import au.com.fantomdigital.fantomeventj.EventDispatcher;
+import au.com.fantomdigital.fantomeventj.EventListener;
+import au.com.fantomdigital.fantomeventj.LooperBinder;
+import au.com.fantomdigital.fantomeventj.SubscriberIndex;
+
+import junit.framework.TestCase;
+
+public class SubscribeProcessorTest extends TestCase {
+    private File _output;
+
+    @Override
+    protected void setUp() throws Exception {
+        super.setUp();
+
+        _output = File.createTempFile("subscribe-processor", "");
+        _output.delete();
+        _output.mkdirs();
+    }
+
+    @Override
+    protected void tearDown() throws Exception {
+        super.tearDown();
+
+        delete(_output);
+    }
+
+    public void testGeneratedIndexIsUsedByRegister() throws Exception {
+        ClassLoader loader = compile(source("sample.Screen",
+                "package sample;\n"
+                + "import au.com.fantomdigital.fantomeventj.*;\n"
+                + "public class Screen {\n"
+                + "    public int started;\n"
+                + "    public static int global;\n"
+                + "    @Subscribe(name = \"started\") void onStarted(BaseEvent event) { started++; }\n"
+                + "    @Subscribe(name = \"started\", priority = 5) static void onGlobal(BaseEvent event) { global++; }\n"
+                + "}\n"));
+
+        Class<?> screenClass = loader.loadClass("sample.Screen");
+        Class<?> indexClass = loader.loadClass("sample.Screen" + SubscriberIndex.SUFFIX);
+        assertTrue(SubscriberIndex.class.isAssignableFrom(indexClass));
+
+        Object screen = screenClass.getDeclaredConstructor().newInstance();
+        SubscriberIndex index = (SubscriberIndex) indexClass.getDeclaredConstructor().newInstance();
+        EventListener[] listeners = index.listeners(screen);
+        assertEquals(0, listeners[0].getPriority());
+        assertEquals(5, listeners[1].getPriority());
+
+        EventDispatcher satellite = new EventDispatcher(LooperBinder.ANY, this);
+        satellite.register(screen);
+        satellite.dispatchEvent(new BaseEvent("started", this));
+        satellite.dispatchEvent(new BaseEvent("stopped", this));
+
+        assertEquals(1, screenClass.getField("started").getInt(screen));
+        assertEquals(1, screenClass.getField("global").getInt(null));
+        assertEquals(2, satellite.countEventListeners(new BaseEvent("started", this)));
+
+        satellite.unregister(screen);
+        assertEquals(0, satellite.countEventListeners(new BaseEvent("started", this)));
+    }
+
+    public void testWeakListenersUseTheGeneratedIndex() throws Exception {
+        ClassLoader loader = compile(source("sample.Screen",
+                "package sample;\n"
+                + "import au.com.fantomdigital.fantomeventj.*;\n"
+                + "public class Screen {\n"
+                + "    public int started;\n"
+                + "    @Subscribe(name = \"started\") void onStarted(BaseEvent event) { started++; }\n"
+                + "}\n"));
+
+        Class<?> screenClass = loader.loadClass("sample.Screen");
+        Object screen = screenClass.getDeclaredConstructor().newInstance();
+        EventDispatcher satellite = new EventDispatcher(LooperBinder.ANY, this);
+        satellite.setWeakListeners(true);
+        satellite.register(screen);
+        satellite.dispatchEvent(new BaseEvent("started", this));
+
+        assertEquals(1, screenClass.getField("started").getInt(screen));
+        satellite.destroy();
+    }
+
+    public void testNestedAndInheritedHandlersAreIndexed() throws Exception {
+        ClassLoader loader = compile(source("sample.Outer",
+                "package sample;\n"
+                + "import au.com.fantomdigital.fantomeventj.*;\n"
+                + "public class Outer {\n"
+                + "    public static class Base {\n"
+                + "        public int base;\n"
+                + "        @Subscribe public void onEvent(BaseEvent event) { base++; }\n"
+                + "    }\n"
+                + "    public static class Child extends Base {\n"
+                + "        public int child;\n"
+                + "        @Subscribe(name = \"child\") void onChild(BaseEvent event) { child++; }\n"
+                + "    }\n"
+                + "}\n"));
+
+        Class<?> childClass = loader.loadClass("sample.Outer$Child");
+        loader.loadClass("sample.Outer$Child" + SubscriberIndex.SUFFIX);
+
+        Object child = childClass.getDeclaredConstructor().newInstance();
+        EventDispatcher satellite = new EventDispatcher(LooperBinder.ANY, this);
+        satellite.register(child);
+        satellite.dispatchEvent(new BaseEvent("BaseEvent", this));
+        satellite.dispatchEvent(new BaseEvent("child", this));
+
+        assertEquals(1, childClass.getField("base").getInt(child));
+        assertEquals(1, childClass.getField("child").getInt(child));
+    }
+
+    public void testPrivateHandlerFallsBackToReflection() throws Exception {
+        ClassLoader loader = compile(source("sample.Hidden",
+                "package sample;\n"
+                + "import au.com.fantomdigital.fantomeventj.*;\n"
+                + "public class Hidden {\n"
+                + "    public int started;\n"
+                + "    @Subscribe(name = \"started\") private void onStarted(BaseEvent event) { started++; }\n"
+                + "}\n"));
+
+        try {
+            loader.loadClass("sample.Hidden" + SubscriberIndex.SUFFIX);
+            fail("Expected no generated index");
+        } catch (ClassNotFoundException e) {
+            // expected
+        }
+
+        Class<?> hiddenClass = loader.loadClass("sample.Hidden");
+        Object hidden = hiddenClass.getDeclaredConstructor().newInstance();
+        EventDispatcher satellite = new EventDispatcher(LooperBinder.ANY, this);
+        satellite.register(hidden);
+        satellite.dispatchEvent(new BaseEvent("started", this));
+
+        assertEquals(1, hiddenClass.getField("started").getInt(hidden));
+    }
+
+    public void testInvalidHandlerIsACompileError() throws Exception {
+        StringWriter errors = new StringWriter();
+        boolean compiled = run(errors, source("sample.Invalid",
+                "package sample;\n"
+                + "import au.com.fantomdigital.fantomeventj.*;\n"
+                + "public class Invalid {\n"
+                + "    @Subscribe void onNothing(String event) { }\n"
+                + "}\n"));
+
+        assertFalse(compiled);
+        assertTrue(errors.toString().contains("single IBaseEvent argument"));
+    }
+
+    private ClassLoader compile(JavaFileObject source) throws IOException {
+        StringWriter errors = new StringWriter();
+        assertTrue(errors.toString(), run(errors, source));
+        return new URLClassLoader(new URL[] {_output.toURI().toURL()}, getClass().getClassLoader());
+    }
+
+    private boolean run(StringWriter errors, JavaFileObject source) {
+        JavaCompiler compiler = ToolProvider.getSystemJavaCompiler();
+        String classpath = location(BaseEvent.class);
+        List<String> options = Arrays.asList("-d", _output.getPath(), "-s", _output.getPath(),
+                "-classpath", classpath);
+
+        JavaCompiler.CompilationTask task = compiler.getTask(errors, null, null, options, null, Arrays.asList(source));
+        task.setProcessors(Arrays.asList(new SubscribeProcessor()));
+        return task.call();
+    }
+
+    private static String location(Class<?> type) {
+        return new File(type.getProtectionDomain().getCodeSource().getLocation().getPath()).getPath();
+    }
+
+    private static JavaFileObject source(String className, final String code) {
+        return new SimpleJavaFileObject(URI.create("string:///" + className.replace('.', '/') + ".java"),
+                JavaFileObject.Kind.SOURCE) {
+            @Override public CharSequence getCharContent(boolean ignoreEncodingErrors) {
+                return code;
+            }
+        };
+    }
+
+    private static void delete(File file) {
+        File[] children = file.listFiles();
+        if (children != null) {
+            for (File child : children) {
+                delete(child);
+            }
+        }
+        file.delete();
+    }
+}
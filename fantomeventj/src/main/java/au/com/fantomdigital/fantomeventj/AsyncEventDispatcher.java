@@ -0,0 +1,409 @@
+/*
+ * Copyright (C) 2015 Fantom Digital Pty. Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package au.com.fantomdigital.fantomeventj;
+
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/*
+ * AsyncEventDispatcher: An event dispatcher handing every delivery to an {@link Executor}
+ * so slow handlers never block the dispatching thread.
+ *
+ * <p>Each listener owns a mailbox that is drained by at most one executor task at a time, so a listener
+ * receives events in the order they were dispatched and never runs concurrently with itself. Different
+ * listeners run in parallel as far as the executor allows.</p>
+ *
+ * <p>Failures of handlers are reported to {@link #onDeliveryFailure(IBaseEvent, EventListener, RuntimeException)}
+ * on the executor thread instead of the dispatching thread.</p>
+ *
+ * <p>With a {@link ConflationKey}, a mailbox keeps only the latest pending event of each key. Mailboxes pick the key
+ * up when created, so set it before the first dispatch.</p>
+ *
+ * <p>{@link #setQueueCapacity(int, OverflowPolicy)} bounds each mailbox. A handler blocking on its own full mailbox
+ * never returns, so use another policy when handlers dispatch to themselves.</p>
+ *
+ * Project: fantomeventj
+ *
+ * @author sfdi
+ * @date 17/10/26
+ */
+public class AsyncEventDispatcher extends EventDispatcher {
+    /** Deliveries a mailbox runs before yielding its executor thread to other listeners. */
+    private static final int MAILBOX_BATCH = 64;
+
+    /** Runs the mailboxes. */
+    private final Executor _executor;
+
+    /** Mailbox of every listener that received an event. */
+    private final ConcurrentMap<EventListener, Mailbox> _mailboxes = new ConcurrentHashMap<EventListener, Mailbox>();
+
+    /** Deliveries handed over but not yet finished. */
+    private final AtomicInteger _pending = new AtomicInteger();
+
+    /** Monitor notified when {@link #_pending} drops to zero. */
+    private final Object _quiescence = new Object();
+
+    /**
+     * Creates a new AsyncEventDispatcher accepting dispatches from any thread.
+     *
+     * @param executor runs the deliveries, owned by the caller.
+     */
+    public AsyncEventDispatcher(Executor executor, Object target) {
+        this(executor, LooperBinder.ANY, DEFAULT_IDENTIFIER, target);
+    }
+
+    /**
+     * Creates a new AsyncEventDispatcher.
+     *
+     * @param executor runs the deliveries, owned by the caller.
+     * @param binder Looper Binder for register, unregister, and post actions.
+     * @param id A brief name for this satellite, for debug needs. Should be a valid Java id.
+     */
+    public AsyncEventDispatcher(Executor executor, LooperBinder binder, String id, Object target) {
+        super(binder, id, target);
+
+        if (executor == null) {
+            throw new NullPointerException("AsyncEventDispatcher executor cannot be null.");
+        }
+        _executor = executor;
+    }
+
+    /**
+     * Hands {@code event} to the mailbox of {@code listener} instead of calling it on this thread.
+     */
+    @Override protected void process(IBaseEvent event, EventListener listener) {
+        Mailbox mailbox = _mailboxes.get(listener);
+        while (mailbox == null || mailbox.listener != listener) {
+            // none yet, or left by an equal listener removed without a prune, such as on unregister or weak purge
+            Mailbox newMailbox = new Mailbox(listener, getConflationKey());
+            if (mailbox == null ? _mailboxes.putIfAbsent(listener, newMailbox) == null
+                    : _mailboxes.replace(listener, mailbox, newMailbox)) {
+                mailbox = newMailbox;
+            } else {
+                mailbox = _mailboxes.get(listener);
+            }
+        }
+
+        traceEnqueued(event, listener);
+        mailbox.offer(event);
+    }
+
+    /**
+     * Hands each event of the group to the mailbox of {@code listener}, so batch handlers are called on the executor
+     * too, one event at a time.
+     */
+    @Override protected void processBatch(List<IBaseEvent> events, EventListener listener) {
+        for (int i = 0, size = events.size(); i < size; i++) {
+            process(events.get(i), listener);
+        }
+    }
+
+    /**
+     * Hands the sticky {@code event} to the mailbox of {@code listener}, like any other delivery.
+     */
+    @Override protected void replayStickyEvent(IBaseEvent event, EventListener listener) {
+        process(event, listener);
+    }
+
+    /**
+     * Called on the executor thread when a handler throws. Hands the failure to the uncaught exception handler of
+     * that thread by default.
+     *
+     * @param event event that was being delivered.
+     * @param listener listener that failed.
+     * @param e the failure, as reported by {@link EventDispatcher#process(IBaseEvent, EventListener)}.
+     */
+    protected void onDeliveryFailure(IBaseEvent event, EventListener listener, RuntimeException e) {
+        Thread thread = Thread.currentThread();
+        Thread.UncaughtExceptionHandler handler = thread.getUncaughtExceptionHandler();
+        if (handler != null) {
+            handler.uncaughtException(thread, e);
+        }
+    }
+
+    /**
+     * Number of deliveries handed to the executor that have not finished yet.
+     */
+    public int countPendingDeliveries() {
+        return _pending.get();
+    }
+
+    /**
+     * Waits until every delivery handed to the executor has finished, or the timeout elapses.
+     *
+     * <p>Deliveries dispatched by handlers while waiting are waited for as well.</p>
+     *
+     * @return true if quiescent, false if the timeout elapsed first.
+     * @throws InterruptedException if interrupted while waiting.
+     */
+    public boolean awaitQuiescence(long timeout, TimeUnit unit) throws InterruptedException {
+        long deadline = System.nanoTime() + unit.toNanos(timeout);
+
+        synchronized (_quiescence) {
+            while (_pending.get() != 0) {
+                long remaining = deadline - System.nanoTime();
+                if (remaining <= 0) {
+                    return false;
+                }
+                TimeUnit.NANOSECONDS.timedWait(_quiescence, remaining);
+            }
+        }
+        return true;
+    }
+
+    @Override public void removeEventListener(IBaseEvent event, EventListener listener) {
+        super.removeEventListener(event, listener);
+        pruneMailboxes();
+    }
+
+    @Override public void removeAllEventListener(IBaseEvent event) {
+        super.removeAllEventListener(event);
+        pruneMailboxes();
+    }
+
+    @Override public void removeAllEventListener() {
+        super.removeAllEventListener();
+        pruneMailboxes();
+    }
+
+    @Override public String toString() {
+        return "[AsyncEventSatellite " + super.toString() + "]";
+    }
+
+    /**
+     * Forgets the mailboxes of listeners that were removed. Events still queued for them are skipped as the
+     * listener is invalid.
+     */
+    private void pruneMailboxes() {
+        for (Iterator<Mailbox> its = _mailboxes.values().iterator(); its.hasNext();) {
+            if (!its.next().listener.isValid()) {
+                its.remove();
+            }
+        }
+    }
+
+    private void completed(int deliveries) {
+        if (_pending.addAndGet(-deliveries) == 0) {
+            synchronized (_quiescence) {
+                _quiescence.notifyAll();
+            }
+        }
+    }
+
+    /** Events waiting for one listener, drained by at most one executor task at a time. */
+    private final class Mailbox implements Runnable {
+        final EventListener listener;
+        /** Pending events, or their keys when conflating. */
+        private final ConcurrentLinkedQueue<Object> _events = new ConcurrentLinkedQueue<Object>();
+        /** Number of entries in {@link #_events}, including those reserved but not yet offered. */
+        private final AtomicInteger _size = new AtomicInteger();
+        /** Producers blocked on a full mailbox, changed under the mailbox monitor. */
+        private volatile int _waiters;
+        private final AtomicBoolean _scheduled = new AtomicBoolean();
+        /** Key of superseding events, null when not conflating. */
+        private final ConflationKey _conflationKey;
+        /** Latest pending event of each key queued in {@link #_events}, null when not conflating. */
+        private final ConcurrentMap<Object, IBaseEvent> _latest;
+
+        Mailbox(EventListener listener, ConflationKey conflationKey) {
+            this.listener = listener;
+            _conflationKey = conflationKey;
+            _latest = conflationKey != null ? new ConcurrentHashMap<Object, IBaseEvent>() : null;
+        }
+
+        void offer(IBaseEvent event) {
+            Object key = keyOf(event);
+            if (key != null && _latest.replace(key, event) != null) {
+                // the pending event of this key has not been taken yet, it is now delivered as this one
+                conflated(1);
+                return;
+            }
+
+            if (!reserve(event)) {
+                return;
+            }
+
+            if (key == null) {
+                _pending.incrementAndGet();
+                _events.offer(event);
+            } else if (_latest.put(key, event) != null) {
+                // another producer queued this key meanwhile
+                release();
+                conflated(1);
+                return;
+            } else {
+                _pending.incrementAndGet();
+                _events.offer(new ConflatedEntry(key));
+            }
+            schedule();
+        }
+
+        private Object keyOf(IBaseEvent event) {
+            if (_conflationKey == ConflationKey.CLASS_AND_NAME) {
+                // every event reaching this listener carries its name, the class alone tells them apart
+                return event.getClass();
+            }
+            return _conflationKey != null ? _conflationKey.keyOf(event) : null;
+        }
+
+        /**
+         * Takes room for one entry, applying the overflow policy while the mailbox is full.
+         *
+         * @return false if {@code event} must not be queued.
+         */
+        private boolean reserve(IBaseEvent event) {
+            int capacity = getQueueCapacity();
+            while (true) {
+                int size = _size.get();
+                if (size < capacity) {
+                    if (_size.compareAndSet(size, size + 1)) {
+                        recordQueueDepth(size + 1);
+                        return true;
+                    }
+                    continue;
+                }
+
+                switch (getOverflowPolicy()) {
+                    case BLOCK:
+                        awaitRoom(capacity);
+                        break;
+                    case DROP_NEWEST:
+                        dropped(1);
+                        return false;
+                    case DROP_OLDEST:
+                        Object oldest = _events.poll();
+                        if (oldest != null) {
+                            take(oldest);
+                            release();
+                            dropped(1);
+                            completed(1);
+                        }
+                        break;
+                    case CALL_HANDLER:
+                        dropped(1);
+                        onQueueOverflow(event, listener);
+                        return false;
+                    default:
+                        throw new IllegalStateException("Mailbox of " + listener + " in " + AsyncEventDispatcher.this
+                                + " is full with " + capacity + " pending events.");
+                }
+            }
+        }
+
+        private void awaitRoom(int capacity) {
+            synchronized (this) {
+                _waiters++;
+                try {
+                    while (_size.get() >= capacity) {
+                        wait();
+                    }
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    throw new IllegalStateException("Interrupted waiting for the mailbox of " + listener, e);
+                } finally {
+                    _waiters--;
+                }
+            }
+        }
+
+        /** Gives back the room of one entry, waking blocked producers. */
+        private void release() {
+            _size.decrementAndGet();
+            if (_waiters > 0) {
+                synchronized (this) {
+                    notifyAll();
+                }
+            }
+        }
+
+        private IBaseEvent take(Object entry) {
+            if (entry instanceof ConflatedEntry) {
+                return _latest.remove(((ConflatedEntry) entry).key);
+            }
+            return (IBaseEvent) entry;
+        }
+
+        //@Override
+        public void run() {
+            int delivered = 0;
+            try {
+                Object entry;
+                while (delivered < MAILBOX_BATCH && (entry = _events.poll()) != null) {
+                    IBaseEvent event = take(entry);
+                    release();
+                    try {
+                        if (event != null && listener.isValid() && !isPropagationStopped(event)) {
+                            AsyncEventDispatcher.super.process(event, listener);
+                        }
+                    } catch (RuntimeException e) {
+                        onDeliveryFailure(event, listener, e);
+                    } finally {
+                        delivered++;
+                    }
+                }
+            } finally {
+                _scheduled.set(false);
+                completed(delivered);
+            }
+
+            // events offered while we were finishing, or beyond the batch
+            if (!_events.isEmpty()) {
+                schedule();
+            }
+        }
+
+        private void schedule() {
+            if (!_scheduled.compareAndSet(false, true)) {
+                return;
+            }
+
+            try {
+                _executor.execute(this);
+            } catch (RejectedExecutionException e) {
+                // executor is gone, nothing will ever deliver what is queued
+                int dropped = 0;
+                while (_events.poll() != null) {
+                    release();
+                    dropped++;
+                }
+                if (_latest != null) {
+                    _latest.clear();
+                }
+                _scheduled.set(false);
+                completed(dropped);
+                throw e;
+            }
+        }
+    }
+
+    /** Place of a conflating key in a mailbox queue, never mistaken for an event. */
+    private static final class ConflatedEntry {
+        final Object key;
+
+        ConflatedEntry(Object key) {
+            this.key = key;
+        }
+    }
+}
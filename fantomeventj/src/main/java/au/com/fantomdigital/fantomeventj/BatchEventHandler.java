@@ -0,0 +1,41 @@
+/*
+ * Copyright (C) 2015 Fantom Digital Pty. Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package au.com.fantomdigital.fantomeventj;
+
+import java.util.List;
+
+/**
+ * BatchEventHandler: A handler receiving every event of one class and name from a
+ * {@link IEventDispatcher#dispatchEvents(java.util.Collection)} batch in a single call.
+ *
+ * <p>Wrap it with {@link EventListener#EventListener(IBaseEvent, BatchEventHandler)} to add it like any other
+ * listener. Events dispatched one at a time arrive as a batch of one.</p>
+ *
+ * Project: fantomeventj
+ *
+ * @author sfdi
+ * @date 17/10/26
+ */
+public interface BatchEventHandler<E extends IBaseEvent> {
+
+    /**
+     * Handles a group of events sharing the same class and name, in dispatch order.
+     *
+     * @param events events of the group, must not be modified or kept after returning.
+     */
+    void handleEvents(List<E> events);
+}
@@ -0,0 +1,67 @@
+/*
+ * Copyright (C) 2015 Fantom Digital Pty. Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package au.com.fantomdigital.fantomeventj;
+
+/*
+ * CancellableEvent: A base event whose propagation can be stopped by a listener, like the
+ * AS3 stopPropagation. Listeners not yet called, or called later from a queue, skip it.
+ *
+ * <p>Once stopped, the event stays stopped, so create a new one to dispatch again. Listeners of an
+ * {@link AsyncEventDispatcher} or a {@link RingBufferEventDispatcher} run in parallel, so there it
+ * only skips deliveries that have not started yet.</p>
+ *
+ * Project: fantomeventj
+ *
+ * @author sfdi
+ * @date 17/10/26
+ */
+public class CancellableEvent extends BaseEvent implements ICancellableEvent {
+    /** Whether a listener consumed the event. */
+    private volatile boolean _propagationStopped;
+
+    /**
+     * Creates a new cancellable event.
+     *
+     * @param eventName the name of the event
+     * @param target object broadcasting the CancellableEvent.
+     */
+    public CancellableEvent(String eventName, Object target) {
+        super(eventName, target);
+    }
+
+    /**
+     * Simple Event for base loading
+     * @param eventName
+     */
+    public CancellableEvent(String eventName) {
+        super(eventName);
+    }
+
+    /** Stops the listeners after the current one from receiving this event. */
+    public void stopPropagation() {
+        _propagationStopped = true;
+    }
+
+    public boolean isPropagationStopped() {
+        return _propagationStopped;
+    }
+
+    /** String representation */
+    @Override public String toString() {
+        return "[CancellableEvent " + getName() + "]";
+    }
+}
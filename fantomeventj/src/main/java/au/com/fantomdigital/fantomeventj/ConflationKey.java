@@ -0,0 +1,52 @@
+/*
+ * Copyright (C) 2015 Fantom Digital Pty. Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package au.com.fantomdigital.fantomeventj;
+
+import java.util.AbstractMap;
+
+/**
+ * ConflationKey: Tells which pending events of a conflating dispatcher supersede each other.
+ *
+ * <p>A pending event is replaced by a newer event for the same listener when both have equal keys, so the listener
+ * only sees the latest state. See {@link EventDispatcher#setConflationKey(ConflationKey)}.</p>
+ *
+ * Project: fantomeventj
+ *
+ * @author sfdi
+ * @date 17/10/26
+ */
+public interface ConflationKey {
+
+    /**
+     * Conflates events of the same class and name. The dispatchers recognise this key and compare class and name
+     * directly, without building a key for each event.
+     */
+    ConflationKey CLASS_AND_NAME = new ConflationKey() {
+        //@Override
+        public Object keyOf(IBaseEvent event) {
+            return new AbstractMap.SimpleImmutableEntry<Class<?>, String>(event.getClass(), event.getName());
+        }
+    };
+
+    /**
+     * Key of {@code event}, compared with {@link Object#equals(Object)}.
+     *
+     * @param event event about to be queued.
+     * @return the key, null to never conflate this event.
+     */
+    Object keyOf(IBaseEvent event);
+}
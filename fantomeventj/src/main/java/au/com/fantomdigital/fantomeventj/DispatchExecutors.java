@@ -0,0 +1,96 @@
+/*
+ * Copyright (C) 2015 Fantom Digital Pty. Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package au.com.fantomdigital.fantomeventj;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * DispatchExecutors: Ready made executors for {@link AsyncEventDispatcher}.
+ *
+ * <p>Threads are daemons named after the dispatcher so they never keep an application alive. The caller owns the
+ * returned executor and must shut it down.</p>
+ *
+ * Project: fantomeventj
+ *
+ * @author sfdi
+ * @date 17/10/26
+ */
+public final class DispatchExecutors {
+
+  private DispatchExecutors() {
+    // No instances.
+  }
+
+  /**
+   * A fixed pool of {@code threads} daemon threads.
+   *
+   * @param name prefix of the thread names.
+   */
+  public static ExecutorService fixed(String name, int threads) {
+    return Executors.newFixedThreadPool(threads, daemonThreads(name));
+  }
+
+  /**
+   * A single daemon thread running every delivery in turn, like an event loop.
+   *
+   * @param name prefix of the thread name.
+   */
+  public static ExecutorService singleThread(String name) {
+    return Executors.newSingleThreadExecutor(daemonThreads(name));
+  }
+
+  /**
+   * A work stealing {@link ForkJoinPool} sized to the available processors.
+   */
+  public static ExecutorService forkJoin() {
+    return new ForkJoinPool(Runtime.getRuntime().availableProcessors(),
+            ForkJoinPool.defaultForkJoinWorkerThreadFactory, null, true);
+  }
+
+  /**
+   * One virtual thread per delivery. Only available on JDK 21 and later.
+   *
+   * @throws UnsupportedOperationException if the running VM has no virtual threads.
+   */
+  public static ExecutorService virtualThreads() {
+    try {
+      return (ExecutorService) Executors.class.getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+    } catch (Exception e) {
+      throw new UnsupportedOperationException("Virtual threads are not available on this VM.", e);
+    }
+  }
+
+  /**
+   * Thread factory creating daemon threads named {@code name-1}, {@code name-2}...
+   */
+  public static ThreadFactory daemonThreads(final String name) {
+    return new ThreadFactory() {
+      private final AtomicInteger _count = new AtomicInteger();
+
+      //@Override
+      public Thread newThread(Runnable runnable) {
+        Thread thread = new Thread(runnable, name + "-" + _count.incrementAndGet());
+        thread.setDaemon(true);
+        return thread;
+      }
+    };
+  }
+}
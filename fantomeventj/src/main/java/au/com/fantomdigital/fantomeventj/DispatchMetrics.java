@@ -0,0 +1,299 @@
+/*
+ * Copyright (C) 2015 Fantom Digital Pty. Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package au.com.fantomdigital.fantomeventj;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * DispatchMetrics: Opt-in instrumentation of an {@link EventDispatcher}, see
+ * {@link EventDispatcher#setMetrics(DispatchMetrics)}.
+ *
+ * <p>Counts dispatches per event class and name, times every handler call into a histogram per listener, and tracks
+ * the deepest queue and the events queued behind a dispatch in progress. Recording is lock-free; histograms use
+ * power of two buckets, so they never allocate once a listener has been seen. A dispatcher without metrics only
+ * pays a null check.</p>
+ *
+ * <p>Entries are kept until {@link #reset()}, except the timings of removed listeners: snapshots leave them out, and
+ * they are swept from the metrics whenever the number of timed listeners has doubled since the last sweep, so a
+ * dispatcher with listener churn keeps at most about twice its live listeners.</p>
+ *
+ * Project: fantomeventj
+ *
+ * @author sfdi
+ * @date 17/10/26
+ */
+public final class DispatchMetrics {
+    /** Fewest timed listeners worth a sweep. */
+    private static final int MIN_SWEEP_SIZE = 64;
+
+    /** Dispatch count of each event class and name. */
+    private final ConcurrentMap<Class<?>, ConcurrentMap<String, AtomicLong>> _dispatches =
+            new ConcurrentHashMap<Class<?>, ConcurrentMap<String, AtomicLong>>();
+
+    /** Handler call times of each listener. */
+    private final ConcurrentMap<EventListener, Histogram> _timings = new ConcurrentHashMap<EventListener, Histogram>();
+
+    /** Number of timed listeners at which removed ones are next swept out, {@link Integer#MAX_VALUE} while sweeping. */
+    private final AtomicInteger _sweepSize = new AtomicInteger(MIN_SWEEP_SIZE);
+
+    /** Deepest a queue has been. */
+    private final AtomicInteger _maxQueueDepth = new AtomicInteger();
+
+    /** Deliveries queued behind a dispatch in progress instead of delivered right away. */
+    private final AtomicLong _reentrantEnqueues = new AtomicLong();
+
+    void recordDispatch(IBaseEvent event) {
+        ConcurrentMap<String, AtomicLong> names = _dispatches.get(event.getClass());
+        if (names == null) {
+            // concurrent init map
+            ConcurrentMap<String, AtomicLong> newNames = new ConcurrentHashMap<String, AtomicLong>();
+            names = _dispatches.putIfAbsent(event.getClass(), newNames);
+            if (names == null) {
+                names = newNames;
+            }
+        }
+
+        AtomicLong count = names.get(event.getName());
+        if (count == null) {
+            AtomicLong newCount = new AtomicLong();
+            count = names.putIfAbsent(event.getName(), newCount);
+            if (count == null) {
+                count = newCount;
+            }
+        }
+        count.incrementAndGet();
+    }
+
+    void recordInvocation(EventListener listener, long nanos) {
+        Histogram histogram = _timings.get(listener);
+        if (histogram == null) {
+            Histogram newHistogram = new Histogram();
+            histogram = _timings.putIfAbsent(listener, newHistogram);
+            if (histogram == null) {
+                histogram = newHistogram;
+                sweepIfGrown();
+            }
+        }
+        histogram.record(nanos);
+    }
+
+    /**
+     * Drops the timings of removed listeners once the timed listeners have doubled since the last sweep, so sweeping
+     * costs amortised O(1) per listener seen.
+     */
+    private void sweepIfGrown() {
+        int sweepSize = _sweepSize.get();
+        if (_timings.size() < sweepSize || !_sweepSize.compareAndSet(sweepSize, Integer.MAX_VALUE)) {
+            return;
+        }
+
+        try {
+            for (Iterator<EventListener> listeners = _timings.keySet().iterator(); listeners.hasNext(); ) {
+                if (!listeners.next().isValid()) {
+                    listeners.remove();
+                }
+            }
+        } finally {
+            _sweepSize.set(Math.max(MIN_SWEEP_SIZE, _timings.size() << 1));
+        }
+    }
+
+    void recordQueueDepth(int depth) {
+        int max;
+        while (depth > (max = _maxQueueDepth.get())) {
+            if (_maxQueueDepth.compareAndSet(max, depth)) {
+                return;
+            }
+        }
+    }
+
+    void recordReentrantEnqueue() {
+        _reentrantEnqueues.incrementAndGet();
+    }
+
+    /** Number of listeners with recorded timings, removed ones included until swept. */
+    int countTimedListeners() {
+        return _timings.size();
+    }
+
+    /**
+     * Copies the current values. Values recorded meanwhile may or may not be included.
+     */
+    public Snapshot snapshot() {
+        Map<Class<?>, Map<String, Long>> dispatches = new HashMap<Class<?>, Map<String, Long>>();
+        for (Map.Entry<Class<?>, ConcurrentMap<String, AtomicLong>> type : _dispatches.entrySet()) {
+            Map<String, Long> names = new HashMap<String, Long>();
+            for (Map.Entry<String, AtomicLong> name : type.getValue().entrySet()) {
+                names.put(name.getKey(), name.getValue().get());
+            }
+            dispatches.put(type.getKey(), Collections.unmodifiableMap(names));
+        }
+
+        Map<EventListener, ListenerTiming> timings = new HashMap<EventListener, ListenerTiming>();
+        for (Map.Entry<EventListener, Histogram> timing : _timings.entrySet()) {
+            if (timing.getKey().isValid()) {
+                timings.put(timing.getKey(), timing.getValue().snapshot());
+            }
+        }
+
+        return new Snapshot(Collections.unmodifiableMap(dispatches), Collections.unmodifiableMap(timings),
+                _maxQueueDepth.get(), _reentrantEnqueues.get());
+    }
+
+    /**
+     * Forgets everything recorded so far.
+     */
+    public void reset() {
+        _dispatches.clear();
+        _timings.clear();
+        _sweepSize.set(MIN_SWEEP_SIZE);
+        _maxQueueDepth.set(0);
+        _reentrantEnqueues.set(0);
+    }
+
+    /** Values of a {@link DispatchMetrics} at one point in time. */
+    public static final class Snapshot {
+        private final Map<Class<?>, Map<String, Long>> _dispatches;
+        private final Map<EventListener, ListenerTiming> _timings;
+        private final int _maxQueueDepth;
+        private final long _reentrantEnqueues;
+
+        Snapshot(Map<Class<?>, Map<String, Long>> dispatches, Map<EventListener, ListenerTiming> timings,
+                 int maxQueueDepth, long reentrantEnqueues) {
+            _dispatches = dispatches;
+            _timings = timings;
+            _maxQueueDepth = maxQueueDepth;
+            _reentrantEnqueues = reentrantEnqueues;
+        }
+
+        /** Dispatch counts by event class then event name. */
+        public Map<Class<?>, Map<String, Long>> getDispatchCounts() {
+            return _dispatches;
+        }
+
+        public long getDispatchCount(Class<?> type, String name) {
+            Map<String, Long> names = _dispatches.get(type);
+            Long count = names != null ? names.get(name) : null;
+            return count != null ? count : 0;
+        }
+
+        /** Handler call times of every listener called at least once and still registered. */
+        public Map<EventListener, ListenerTiming> getListenerTimings() {
+            return _timings;
+        }
+
+        /** Deepest a queue of pending deliveries has been. */
+        public int getMaxQueueDepth() {
+            return _maxQueueDepth;
+        }
+
+        /** Deliveries queued behind a dispatch in progress on the same thread. */
+        public long getReentrantEnqueues() {
+            return _reentrantEnqueues;
+        }
+    }
+
+    /** Handler call times of one listener. */
+    public static final class ListenerTiming {
+        private final long[] _buckets;
+        private final long _count;
+        private final long _totalNanos;
+        private final long _maxNanos;
+
+        ListenerTiming(long[] buckets, long count, long totalNanos, long maxNanos) {
+            _buckets = buckets;
+            _count = count;
+            _totalNanos = totalNanos;
+            _maxNanos = maxNanos;
+        }
+
+        public long getCount() {
+            return _count;
+        }
+
+        public long getTotal(TimeUnit unit) {
+            return unit.convert(_totalNanos, TimeUnit.NANOSECONDS);
+        }
+
+        public long getMax(TimeUnit unit) {
+            return unit.convert(_maxNanos, TimeUnit.NANOSECONDS);
+        }
+
+        public long getMean(TimeUnit unit) {
+            return _count == 0 ? 0 : unit.convert(_totalNanos / _count, TimeUnit.NANOSECONDS);
+        }
+
+        /**
+         * Upper bound of the call time under which {@code percentile} of the calls fall, within a factor of two.
+         *
+         * @param percentile between 0 and 100.
+         */
+        public long getPercentile(double percentile, TimeUnit unit) {
+            long rank = (long) Math.ceil(_count * percentile / 100);
+            long seen = 0;
+            for (int i = 0; i < _buckets.length; i++) {
+                seen += _buckets[i];
+                if (seen >= rank && seen > 0) {
+                    long bound = i == 0 ? 0 : i >= 63 ? Long.MAX_VALUE : (1L << i) - 1;
+                    return unit.convert(Math.min(bound, _maxNanos), TimeUnit.NANOSECONDS);
+                }
+            }
+            return 0;
+        }
+    }
+
+    /** Lock-free histogram of nanosecond durations, bucket {@code i} holding durations below {@code 2^i}. */
+    private static final class Histogram {
+        private final AtomicLongArray _buckets = new AtomicLongArray(64);
+        private final AtomicLong _count = new AtomicLong();
+        private final AtomicLong _totalNanos = new AtomicLong();
+        private final AtomicLong _maxNanos = new AtomicLong();
+
+        void record(long nanos) {
+            if (nanos < 0) {
+                nanos = 0;
+            }
+            _buckets.incrementAndGet(64 - Long.numberOfLeadingZeros(nanos));
+            _count.incrementAndGet();
+            _totalNanos.addAndGet(nanos);
+
+            long max;
+            while (nanos > (max = _maxNanos.get())) {
+                if (_maxNanos.compareAndSet(max, nanos)) {
+                    break;
+                }
+            }
+        }
+
+        ListenerTiming snapshot() {
+            long[] buckets = new long[_buckets.length()];
+            for (int i = 0; i < buckets.length; i++) {
+                buckets[i] = _buckets.get(i);
+            }
+            return new ListenerTiming(buckets, _count.get(), _totalNanos.get(), _maxNanos.get());
+        }
+    }
+}
@@ -0,0 +1,63 @@
+/*
+ * Copyright (C) 2015 Fantom Digital Pty. Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package au.com.fantomdigital.fantomeventj;
+
+/**
+ * DispatchTracer: Callbacks following single events through an {@link EventDispatcher}, see
+ * {@link EventDispatcher#setTracer(DispatchTracer)}.
+ *
+ * <p>For each dispatch the tracer sees {@link #dispatchBegin}, then {@link #enqueued} for every delivery queued
+ * instead of made right away, {@link #invokeBegin} and {@link #invokeEnd} around every handler call, and
+ * {@link #dispatchEnd}. Queued deliveries may be invoked after {@link #dispatchEnd}, or on another thread for an
+ * {@link AsyncEventDispatcher}.</p>
+ *
+ * <p>Events dispatched by a handler name the event it was handling as their parent, also across dispatchers as long
+ * as both trace. Calls of a {@link BatchEventHandler} with a whole group are not traced.</p>
+ *
+ * <p>Callbacks run on the dispatching or delivering thread, inline, and must be thread safe and quick. A dispatcher
+ * without a tracer only pays a null check and allocates nothing.</p>
+ *
+ * Project: fantomeventj
+ *
+ * @author sfdi
+ * @date 17/10/26
+ */
+public interface DispatchTracer {
+
+    /**
+     * {@code event} is being dispatched.
+     *
+     * @param parent event whose handler is dispatching {@code event}, null at top level.
+     */
+    void dispatchBegin(EventDispatcher dispatcher, IBaseEvent event, IBaseEvent parent);
+
+    /** The dispatch of {@code event} returned, possibly leaving queued deliveries. */
+    void dispatchEnd(EventDispatcher dispatcher, IBaseEvent event);
+
+    /** The delivery of {@code event} to {@code listener} was queued. */
+    void enqueued(EventDispatcher dispatcher, IBaseEvent event, EventListener listener);
+
+    /** {@code listener} is about to handle {@code event}. */
+    void invokeBegin(EventDispatcher dispatcher, IBaseEvent event, EventListener listener);
+
+    /**
+     * {@code listener} finished handling {@code event}.
+     *
+     * @param failure what the handler threw, null if it returned.
+     */
+    void invokeEnd(EventDispatcher dispatcher, IBaseEvent event, EventListener listener, Throwable failure);
+}
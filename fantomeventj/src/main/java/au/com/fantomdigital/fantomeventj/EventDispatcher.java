@@ -16,19 +16,25 @@
 
 package au.com.fantomdigital.fantomeventj;
 
+import java.lang.ref.Reference;
+import java.lang.ref.ReferenceQueue;
 import java.lang.reflect.InvocationTargetException;
-import java.lang.reflect.Method;
-import java.util.Iterator;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
-import java.util.Set;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ConcurrentLinkedQueue;
 import java.util.concurrent.ConcurrentMap;
-import java.util.concurrent.CopyOnWriteArraySet;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
 
 /*
  * EventSatellite: A event dispatcher satellite that can attach itself
- * to any class targets using the main looper.
+ * to any class targets using the looper (thread) it is bound to.
  *
  * <p>This class is hopefully safe for concurrent use.</p>
  *
@@ -40,41 +46,116 @@ import java.util.concurrent.CopyOnWriteArraySet;
 public class EventDispatcher implements IEventDispatcher {
     public static final String DEFAULT_IDENTIFIER = "default";
 
+    /**
+     * Release configuration: when the {@code fantomeventj.elideBinderChecks} system property is {@code true} at class
+     * load, looper binders are never checked.
+     */
+    public static final boolean ELIDE_BINDER_CHECKS = Boolean.getBoolean("fantomeventj.elideBinderChecks");
+
     /** Identifier used to differentiate the event satellite instance. */
     private final String _id;
 
     /** Looper binder for register, unregister, and posting events. */
     private final LooperBinder _binder;
 
+    /** How {@link #_binder} is enforced. */
+    private final BindPolicy _bindPolicy;
+
+    /** Thread of a {@link BindPolicy#THREAD} binder, cached so the check is a field compare. */
+    private final Thread _boundThread;
+
     /** Target of satellite attachment. */
     private final Object _target;
 
-    /** All registered event handlers, indexed by event class. */
-    private final ConcurrentMap<Class<?>, Set<EventListener>> _listeners =
-            new ConcurrentHashMap<Class<?>, Set<EventListener>>();
+    /**
+     * Whether deliveries with nothing pending may skip the queue, only when {@link #enqueueEvent(IBaseEvent,
+     * EventListener)} is not overridden so subclasses still see every delivery through it.
+     */
+    private final boolean _directDelivery;
 
-    /** Queues of event with handler pairs on the binded looper */
-    private final ThreadLocal<ConcurrentLinkedQueue<EventWithHandler>> _queue =
-            new ThreadLocal<ConcurrentLinkedQueue<EventWithHandler>>() {
-                @Override protected ConcurrentLinkedQueue<EventWithHandler> initialValue() {
-                    return new ConcurrentLinkedQueue<EventWithHandler>();
-                }
-            };
+    /** All registered event handlers, indexed by event class and event name. */
+    private final ListenerRegistry _listeners = new ListenerRegistry();
+
+    /** Whether listeners of supertypes and interfaces of an event class receive it too. */
+    private volatile boolean _dispatchHierarchy;
+
+    /** Whether listeners added from now on only weakly hold their targets. */
+    private volatile boolean _weakListeners;
+
+    /** Where references to collected targets of weak listeners are enqueued. */
+    private final ReferenceQueue<Object> _collected = new ReferenceQueue<Object>();
+
+    /** Number of weak listeners removed after their target was collected. */
+    private final AtomicLong _purged = new AtomicLong();
+
+    /** Most collected listeners removed per operation, so purging never stalls a dispatch. */
+    private static final int PURGE_BATCH = 16;
+
+    /** Key of pending events replaced by newer ones, null when not conflating. */
+    private volatile ConflationKey _conflationKey;
+
+    /** Number of pending events replaced by newer ones. */
+    private final AtomicLong _conflated = new AtomicLong();
+
+    /** Most events pending in one queue, unbounded by default. */
+    private volatile int _queueCapacity = Integer.MAX_VALUE;
 
-    /** Check if satellite is in the process of dispatching. */
-    private final ThreadLocal<Boolean> _processingQueue = new ThreadLocal<Boolean>() {
-        @Override protected Boolean initialValue() {
-            return false;
+    /** What a full queue does with an arriving event. */
+    private volatile OverflowPolicy _overflowPolicy = OverflowPolicy.FAIL_FAST;
+
+    /** Deepest a queue has been. */
+    private final AtomicInteger _queueHighWaterMark = new AtomicInteger();
+
+    /** Number of events a full queue dropped or handed to {@link #onQueueOverflow(IBaseEvent, EventListener)}. */
+    private final AtomicLong _dropped = new AtomicLong();
+
+    /** Parent in the dispatcher tree, null for a root. */
+    private volatile EventDispatcher _parent;
+
+    /** Ancestors from the root down to the parent, cached for {@link #propagateEvent(IBaseEvent)}. */
+    private volatile AncestorPath _ancestors;
+
+    /** Number of {@link #setParent(EventDispatcher)} calls so far in any tree, cached paths older than it are stale. */
+    private static final AtomicInteger TREE_CHANGES = new AtomicInteger();
+
+    /** Listeners called while an event propagates down to a descendant, indexed like {@link #_listeners}. */
+    private final ListenerRegistry _captureListeners = new ListenerRegistry();
+
+    /** Instrumentation, null when off. */
+    private volatile DispatchMetrics _metrics;
+
+    /** Pool running thread safe listeners in parallel, null when off. */
+    private volatile FanOut _fanOut;
+
+    /** Tracer, null when off. */
+    private volatile DispatchTracer _tracer;
+
+    /** Event whose handler runs on each thread, the parent of events it dispatches. Only kept while tracing. */
+    private static final ThreadLocal<TraceFrame> TRACE_FRAME = new ThreadLocal<TraceFrame>() {
+        @Override protected TraceFrame initialValue() {
+            return new TraceFrame();
+        }
+    };
+
+    /** Latest sticky event of each event class and name. */
+    private final ConcurrentMap<Class<?>, ConcurrentMap<String, IBaseEvent>> _sticky =
+            new ConcurrentHashMap<Class<?>, ConcurrentMap<String, IBaseEvent>>();
+
+    /** Queues of event with handler pairs on the binded looper, also tracking if the thread is dispatching. */
+    private final ThreadLocal<EventQueue> _queue = new ThreadLocal<EventQueue>() {
+        @Override protected EventQueue initialValue() {
+            return new EventQueue();
         }
     };
 
     /**
-     * Creates a new EventSatellite with the given {@code id} and {@code target} that enforces actions on the main looper.
+     * Creates a new EventSatellite with the given {@code id} and {@code target} that enforces actions on the thread
+     * creating it, the main looper when created from an Android main thread.
      *
      * @param id a brief name for this satellite, for debugging purposes.  Should be a valid Java identifier.
      */
     public EventDispatcher(String id, Object target) {
-        this(LooperBinder.MAIN, id, target);
+        this(LooperBinders.currentThread(), id, target);
     }
 
     /**
@@ -95,7 +176,34 @@ public class EventDispatcher implements IEventDispatcher {
     public EventDispatcher(LooperBinder binder, String id, Object target) {
         _id = id;
         _binder = binder;
+
+        if (ELIDE_BINDER_CHECKS) {
+            _bindPolicy = BindPolicy.ELIDED;
+            _boundThread = null;
+        } else if (binder == LooperBinder.ANY) {
+            _bindPolicy = BindPolicy.ANY;
+            _boundThread = null;
+        } else if (binder instanceof ThreadLooperBinder) {
+            _bindPolicy = BindPolicy.THREAD;
+            _boundThread = ((ThreadLooperBinder) binder).getThread();
+        } else {
+            _bindPolicy = BindPolicy.CUSTOM;
+            _boundThread = null;
+        }
         _target = target;
+        _directDelivery = !overridesEnqueueEvent(getClass());
+    }
+
+    private static boolean overridesEnqueueEvent(Class<?> type) {
+        for (; type != EventDispatcher.class; type = type.getSuperclass()) {
+            try {
+                type.getDeclaredMethod("enqueueEvent", IBaseEvent.class, EventListener.class);
+                return true;
+            } catch (NoSuchMethodException e) {
+                // not here, try the superclass
+            }
+        }
+        return false;
     }
 
     /**
@@ -117,40 +225,30 @@ public class EventDispatcher implements IEventDispatcher {
         }
 
         // binds the looper
-        _binder.bind(this);
+        bindLooper();
 
-        Class type = event.getClass();
-        // find the listener set of this event
-        Set<EventListener> setListeners = _listeners.get(type);
-        if (setListeners == null) {
-            // concurrent init set
-            Set<EventListener> newSet = new CopyOnWriteArraySet<EventListener>();
-            setListeners = _listeners.putIfAbsent(type, newSet);
-            if (setListeners == null) {
-                setListeners = newSet;
-            }
+        purgeCollectedListeners();
+        if (_weakListeners) {
+            listener = listener.weaken(_collected);
         }
 
-        Boolean found = false;
-
-        // check if same one exist by event name and event class
-        for (Iterator<EventListener> its = setListeners.iterator(); its.hasNext();){
-            EventListener foundListener = its.next();
-            //Object foundTarget = foundListener.getTarget();
-            //Method foundMethod = foundListener.getMethod();
-            IBaseEvent foundEvent = foundListener.getEvent();
-
-            // hash code should be the same
-            if(event.getName().equals(foundEvent.getName()) && listener.hashCode() == foundListener.hashCode()) {
-                // if class is the same, target must be correct and if method is the same, ignore
-                found = true;
-                break;
-            }
+        // keyed by what the listener listens to, event is only a hint; the same method on the same target under the
+        // same event class and name is ignored
+        if (_listeners.add(listener.getEventClass(), listener.getEventName(), listener)) {
+            replaySticky(listener.getEventClass(), listener.getEventName(), listener);
         }
+    }
 
-        if(!found) {
-            setListeners.add(listener);
-        }
+    /**
+     * Add event listener {@code listener} with a delivery {@code priority}. Listeners of a higher priority are called
+     * first, listeners of equal priority in registration order. {@link #addEventListener(IBaseEvent, EventListener)}
+     * uses the priority of the listener, 0 unless created for a {@link Subscribe} method with one.
+     *
+     * @param event whose handler methods should be registered.
+     * @param priority delivery priority, higher first.
+     */
+    public void addEventListener(IBaseEvent event, EventListener listener, int priority) {
+        addEventListener(event, listener.withPriority(priority));
     }
 
     /**
@@ -165,50 +263,78 @@ public class EventDispatcher implements IEventDispatcher {
         }
 
         // binds the looper
-        _binder.bind(this);
-
-        Class type = event.getClass();
-        // find the listener set of this event
-        Set<EventListener> setListeners = _listeners.get(type);
-        if (setListeners != null) {
-            EventListener foundListener = null;
-            for (Iterator<EventListener> its = setListeners.iterator(); its.hasNext();){
-                foundListener = its.next();
-                //Object foundTarget = foundListener.getTarget();
-                //Method foundMethod = foundListener.getMethod();
-                IBaseEvent foundEvent = foundListener.getEvent();
-
-                if(event.getName().equals(foundEvent.getName()) && listener.hashCode() == foundListener.hashCode()) {
-                    // found
-                    break;
-                }
+        bindLooper();
+
+        EventListener removed = _listeners.remove(listener.getEventClass(), listener.getEventName(), listener);
+        if (removed != null) {
+            removed.invalidate();
+        }
+    }
+
+    /**
+     * Registers every {@link Subscribe} method of {@code target}.
+     *
+     * <p>Handler methods of each class are discovered once per process, from the index generated by the
+     * fantomeventj-compiler annotation processor when present, so registering another instance of an already seen
+     * class does no reflection.</p>
+     *
+     * @param target object sporting {@link Subscribe} methods.
+     * @throws IllegalArgumentException if a {@link Subscribe} method does not take a single {@link IBaseEvent}.
+     */
+    public void register(Object target) {
+        if (_target == null) {
+            throw new IllegalStateException("Event dispatcher target " + _target + " can not be null.");
+        }
+        if (target == null) {
+            throw new NullPointerException("Object to register must not be null.");
+        }
+
+        // binds the looper
+        bindLooper();
+
+        purgeCollectedListeners();
+        boolean weak = _weakListeners;
+        for (EventListener listener : SubscriberMethods.forClass(target.getClass()).listeners(target)) {
+            if (weak) {
+                listener = listener.weaken(_collected);
+            }
+            if (_listeners.add(listener.getEventClass(), listener.getEventName(), listener)) {
+                replaySticky(listener.getEventClass(), listener.getEventName(), listener);
             }
+        }
+    }
+
+    /**
+     * Removes every {@link Subscribe} method of {@code target} registered by {@link #register(Object)}.
+     *
+     * @param target object previously registered.
+     */
+    public void unregister(Object target) {
+        if (target == null) {
+            throw new NullPointerException("Object to unregister must not be null.");
+        }
+
+        // binds the looper
+        bindLooper();
 
-            if(foundListener != null) {
-                foundListener.invalidate();
-                setListeners.remove(foundListener);
+        for (EventListener listener : SubscriberMethods.forClass(target.getClass()).listeners(target)) {
+            EventListener removed = _listeners.remove(listener.getEventClass(), listener.getEventName(), listener);
+            if (removed != null) {
+                removed.invalidate();
             }
         }
     }
 
     /**
-     * Find set of event listeners
+     * Counts the event listeners of every name registered for the class of {@code event}.
      *
      * @param event
      */
     public int countEventListeners(IBaseEvent event) {
         // binds the looper
-        _binder.bind(this);
+        bindLooper();
 
-        Class type = event.getClass();
-        // find the listener set of this event
-        Set<EventListener> resultSet = _listeners.get(type);
-
-        if(resultSet != null) {
-            return resultSet.size();
-        }
-
-        return 0;
+        return _listeners.count(event.getClass());
     }
 
     /**
@@ -218,18 +344,9 @@ public class EventDispatcher implements IEventDispatcher {
      */
     public void removeAllEventListener(IBaseEvent event) {
         // binds the looper
-        _binder.bind(this);
-
-        Class type = event.getClass();
-        Set<EventListener> setListeners = _listeners.remove(type);
+        bindLooper();
 
-        // remove will remove the set for the given type
-
-        // removed totally
-        for (Iterator<EventListener> its = setListeners.iterator(); its.hasNext();){
-            EventListener removed = its.next();
-            removed.invalidate();
-        }
+        _listeners.removeAll(event.getClass());
     }
 
     /**
@@ -237,165 +354,1213 @@ public class EventDispatcher implements IEventDispatcher {
      */
     public void removeAllEventListener() {
         // binds the looper
-        _binder.bind(this);
+        bindLooper();
 
-        for (Class<?> type : _listeners.keySet()) {
-            Set<EventListener> entries = _listeners.get(type);
-            for (Iterator<EventListener> its = entries.iterator(); its.hasNext();){
-                EventListener removed = its.next();
-                removed.invalidate();
-            }
+        _listeners.removeAll();
+        _captureListeners.removeAll();
+    }
+
+    /**
+     * Adds {@code listener} for the capture phase of {@link #propagateEvent(IBaseEvent)}: it receives events named
+     * like {@code event} on their way down to a descendant, before the descendant's own listeners. It does not
+     * receive events dispatched to this dispatcher itself.
+     *
+     * @param event event whose class and name are listened to.
+     * @param listener listener to add.
+     */
+    public void addCaptureListener(IBaseEvent event, EventListener listener) {
+        // binds the looper
+        bindLooper();
+
+        purgeCollectedListeners();
+        if (_weakListeners) {
+            listener = listener.weaken(_collected);
         }
 
-        _listeners.clear();
+        _captureListeners.add(listener.getEventClass(), listener.getEventName(), listener);
     }
 
+    /**
+     * Removes a listener added by {@link #addCaptureListener(IBaseEvent, EventListener)}.
+     */
+    public void removeCaptureListener(IBaseEvent event, EventListener listener) {
+        // binds the looper
+        bindLooper();
 
-    public void dispatchEvent(IBaseEvent event) {
-        _binder.bind(this);
-
-        Class type = event.getClass();
-        Set<EventListener> setListeners = _listeners.get(type);
-
-        // boolean dispatched = false;
-        if (setListeners != null && !setListeners.isEmpty()) {
-            // dispatched = true;
-            for (EventListener listener : setListeners) {
-                // enqueus the listeners with the same event name
-                if(listener.getEvent().getName().equals(event.getName())) {
-                    enqueueEvent(event, listener);
-                }
+        EventListener removed = _captureListeners.remove(listener.getEventClass(), listener.getEventName(),
+                listener);
+        if (removed != null) {
+            removed.invalidate();
+        }
+    }
+
+    /**
+     * Attaches this dispatcher under {@code parent} in a dispatcher tree, or detaches it with null. Events given to
+     * {@link #propagateEvent(IBaseEvent)} then travel through the parent and its ancestors.
+     *
+     * @param parent new parent, or null.
+     * @throws IllegalArgumentException if {@code parent} is this dispatcher or one of its descendants.
+     */
+    public void setParent(EventDispatcher parent) {
+        for (EventDispatcher ancestor = parent; ancestor != null; ancestor = ancestor._parent) {
+            if (ancestor == this) {
+                throw new IllegalArgumentException("Event satellite " + parent + " is a descendant of " + this);
             }
         }
 
-        processQueue();
+        _parent = parent;
+        TREE_CHANGES.incrementAndGet();
+    }
+
+    public EventDispatcher getParent() {
+        return _parent;
     }
 
     /**
-     * Dispatches an event and enqueues so to check all listeners and
-     * execute accordingly, this is called externally
-     *
-     * sourceTarget is optional
-     *
-     * @param event
-     * @param sourceTarget
+     * Ancestors from the root down to the parent, computed again only after a parent has changed somewhere.
      */
-    public void dispatchEvent(IBaseEvent event, Object sourceTarget) {
-        if (event == null) {
-            throw new NullPointerException("Event to dispatchEvent must not be null.");
+    private EventDispatcher[] getAncestors() {
+        int changes = TREE_CHANGES.get();
+        AncestorPath cached = _ancestors;
+        if (cached != null && cached.changes == changes) {
+            return cached.dispatchers;
         }
 
-        if(sourceTarget == _target) {
-            dispatchEvent(event);
+        // a parent changed during the walk makes the path stale right away, so it is walked again next time
+        List<EventDispatcher> ancestors = new ArrayList<EventDispatcher>();
+        for (EventDispatcher ancestor = _parent; ancestor != null; ancestor = ancestor._parent) {
+            ancestors.add(0, ancestor);
         }
+        EventDispatcher[] found = ancestors.toArray(new EventDispatcher[ancestors.size()]);
+        _ancestors = new AncestorPath(found, changes);
+        return found;
     }
 
     /**
-     * Queue the {@code event} for dispatch during {@link #dispatchEvent(IBaseEvent, Object)}.
-     * FIFO order
-     *
-     * @param event
-     * @param listener
+     * Capture listeners registered under the class and name of {@code event}, in delivery order.
      */
-    protected void enqueueEvent(IBaseEvent event, EventListener listener) {
-        _queue.get().offer(new EventWithHandler(event, listener));
+    ListenerSnapshot getCaptureListeners(IBaseEvent event) {
+        if (_dispatchHierarchy) {
+            return _captureListeners.getHierarchy(event.getClass(), event.getName());
+        }
+        return _captureListeners.get(event.getClass(), event.getName());
+    }
+
+
+    public void dispatchEvent(IBaseEvent event) {
+        bindLooper();
+
+        DispatchMetrics metrics = _metrics;
+        if (metrics != null) {
+            metrics.recordDispatch(event);
+        }
+
+        // only the listeners registered under the same event name, for the event class or its supertypes
+        DispatchTracer tracer = _tracer;
+        if (tracer == null) {
+            deliver(event, getEventListeners(event));
+            return;
+        }
+
+        tracer.dispatchBegin(this, event, tracedEvent());
+        try {
+            deliver(event, getEventListeners(event));
+        } finally {
+            tracer.dispatchEnd(this, event);
+        }
     }
 
     /**
-     * Dispatches {@code event} to the handler in {@code wrapper}.  This method is an appropriate override point for
-     * subclasses that wish to make event delivery asynchronous.
+     * Dispatches {@code event} through the dispatcher tree, like the AS3 display list. Capture listeners of every
+     * ancestor run first, from the root down; then the listeners of this dispatcher; then the listeners of every
+     * ancestor again, from the parent up to the root. Each dispatcher delivers on its own terms, through
+     * {@link #dispatchCaptureEvent(IBaseEvent)} and {@link #dispatchEvent(IBaseEvent)}.
      *
-     * @param event event to dispatch.
-     * @param listener wrapper that will call the handler.
+     * <p>The ancestors are looked up once and cached until a parent changes. An {@link ICancellableEvent} whose
+     * propagation is stopped goes no further; one stopped on the consumer of an asynchronous ancestor may already
+     * have gone on.</p>
+     *
+     * @param event event to propagate.
+     * @see #setParent(EventDispatcher)
+     * @see #addCaptureListener(IBaseEvent, EventListener)
      */
-    protected void process(IBaseEvent event, EventListener listener) {
-        try {
-            listener.handleEvent(event);
-        } catch (InvocationTargetException e) {
-            throwRuntimeException("Could not dispatch event: " + event.getClass() + " to listener " + listener, e);
+    public void propagateEvent(IBaseEvent event) {
+        if (event == null) {
+            throw new NullPointerException("Event to propagateEvent must not be null.");
+        }
+
+        EventDispatcher[] ancestors = getAncestors();
+
+        // capture, root first
+        for (int i = 0; i < ancestors.length; i++) {
+            ancestors[i].dispatchCaptureEvent(event);
+            if (isPropagationStopped(event)) {
+                return;
+            }
+        }
+
+        // target
+        dispatchEvent(event);
+
+        // bubble, parent first
+        for (int i = ancestors.length - 1; i >= 0 && !isPropagationStopped(event); i--) {
+            ancestors[i].dispatchEvent(event);
         }
     }
 
     /**
-     * Throw a {@link RuntimeException} with a message and start a {@link
-     * InvocationTargetException}. If the specified {@link InvocationTargetException} does not
-     * originate properly, then it will not show {@link RuntimeException}.
+     * Hands {@code event} to the capture listeners of this dispatcher on its way down to a descendant, like
+     * {@link #dispatchEvent(IBaseEvent)} does to its listeners. Dispatchers delivering elsewhere hand it to their own
+     * queues instead.
+     *
+     * @param event event propagated by a descendant.
      */
-    private static void throwRuntimeException(String msg, InvocationTargetException e) {
-        Throwable cause = e.getCause();
-        if (cause != null) {
-            throw new RuntimeException(msg + ": " + cause.getMessage(), cause);
-        } else {
-            throw new RuntimeException(msg + ": " + e.getMessage(), e);
-        }
+    protected void dispatchCaptureEvent(IBaseEvent event) {
+        bindLooper();
+
+        deliver(event, getCaptureListeners(event));
     }
 
     /**
-     * Drain the queue of events to be dispatched. As the queue is being drained, new events may be posted to the end of
-     * the queue.
+     * Delivers {@code event} to {@code listeners} on this thread, or queues it behind the pending deliveries.
      */
-    protected void processQueue() {
-        // don't dispatch if we're already dispatching, that would allow reentrancy and out-of-order events. Instead, leave
-        // the events to be dispatched after the in-progress dispatch is complete.
-        if (_processingQueue.get()) {
+    private void deliver(IBaseEvent event, ListenerSnapshot listeners) {
+        EventQueue queue = _queue.get();
+
+        if (queue.processing || !queue.isEmpty() || !_directDelivery) {
+            // re-entrant dispatch or leftovers of a failed one, wait behind the pending deliveries to keep FIFO order
+            for (int i = 0; i < listeners.size(); i++) {
+                enqueueEvent(event, listeners.get(i));
+            }
+
+            processQueue();
             return;
         }
 
-        _processingQueue.set(true);
+        // nothing pending, deliver straight from the snapshot without queueing
+        ICancellableEvent cancellable = event instanceof ICancellableEvent ? (ICancellableEvent) event : null;
+        FanOut fanOut = _fanOut;
+        int next = 0;
+        boolean delivered = false;
+        queue.processing = true;
         try {
-            while (true) {
-                EventWithHandler eventWithHandler = _queue.get().poll();
-                if (eventWithHandler == null) {
+            while (next < listeners.size()) {
+                if (cancellable != null && cancellable.isPropagationStopped()) {
                     break;
                 }
 
-                if (eventWithHandler.handler.isValid()) {
-                    process(eventWithHandler.event, eventWithHandler.handler);
+                EventListener listener = listeners.get(next);
+                if (fanOut != null && listener.isThreadSafe()) {
+                    int from = next;
+                    // the whole run is delivered even when some of it fails
+                    next = endOfThreadSafeRun(listeners, from);
+                    fanOut(fanOut, event, listeners, from, next);
+                    continue;
+                }
+                next++;
+                if (listener.isValid()) {
+                    process(event, listener);
                 }
             }
+            delivered = true;
+
+            drainQueue(queue);
         } finally {
-            _processingQueue.set(false);
+            if (!delivered) {
+                // a handler threw, leave the rest of the snapshot queued ahead of the events its handlers dispatched,
+                // as if it had been queued first
+                for (int i = listeners.size() - 1; i >= next; i--) {
+                    queue.offerFirst(event, listeners.get(i));
+                }
+            }
+            queue.processing = false;
         }
     }
 
     /**
-     * Returns a string description of the object
+     * Dispatches {@code event} and keeps it as the sticky event of its class and name, replacing the previous one.
+     * Listeners added afterwards for the same class and name receive it right away, until it is replaced or removed.
      *
-     * @return
+     * @param event event to dispatch and keep.
      */
-    @Override public String toString() {
-        return "[EventSatellite \"" + _id + "\"]";
+    public void dispatchStickyEvent(IBaseEvent event) {
+        if (event == null) {
+            throw new NullPointerException("Event to dispatchStickyEvent must not be null.");
+        }
+        // a dispatch from the wrong thread must not leave its event behind for later listeners
+        bindLooper();
+
+        ConcurrentMap<String, IBaseEvent> names = _sticky.get(event.getClass());
+        if (names == null) {
+            // concurrent init map
+            ConcurrentMap<String, IBaseEvent> newNames = new ConcurrentHashMap<String, IBaseEvent>();
+            names = _sticky.putIfAbsent(event.getClass(), newNames);
+            if (names == null) {
+                names = newNames;
+            }
+        }
+        names.put(event.getName(), event);
+
+        dispatchEvent(event);
     }
 
     /**
-     * Get the current target.
+     * Latest sticky event of class {@code type} named {@code name}.
      *
-     * @return
+     * @return the event, or null if none is kept.
      */
-    public Object getTarget() {
-        return _target;
+    public IBaseEvent getStickyEvent(Class<?> type, String name) {
+        ConcurrentMap<String, IBaseEvent> names = _sticky.get(type);
+        return names != null ? names.get(name) : null;
     }
 
     /**
-     * Destroys and clears the satellite.
-     * Must be destroyed to clear up any residues in memory and
-     * thread zombies.
+     * Stops keeping the sticky event of class {@code type} named {@code name}.
+     *
+     * @return the removed event, or null if none was kept.
      */
-    public void destroy() {
-        removeAllEventListener();
+    public IBaseEvent removeStickyEvent(Class<?> type, String name) {
+        ConcurrentMap<String, IBaseEvent> names = _sticky.get(type);
+        return names != null ? names.remove(name) : null;
+    }
 
-        _queue.remove();
-        _processingQueue.remove();
+    /**
+     * Stops keeping every sticky event.
+     */
+    public void removeAllStickyEvents() {
+        _sticky.clear();
     }
 
-    /** Simple struct representing an event and its handler. */
-    static class EventWithHandler {
-        final IBaseEvent event;
-        final EventListener handler;
+    /**
+     * Hands the sticky event of class {@code type} named {@code name}, if any, to a newly added {@code listener}.
+     */
+    private void replaySticky(Class<?> type, String name, EventListener listener) {
+        if (_sticky.isEmpty()) {
+            return;
+        }
 
-        public EventWithHandler(IBaseEvent event, EventListener handler) {
-            this.event = event;
-            this.handler = handler;
+        IBaseEvent event = getStickyEvent(type, name);
+        if (event == null || isPropagationStopped(event)) {
+            return;
+        }
+        replayStickyEvent(event, listener);
+    }
+
+    /**
+     * Delivers the sticky {@code event} to a newly added {@code listener}, on this thread or after the pending
+     * deliveries when called from a handler. Dispatchers delivering elsewhere hand it to their own queues instead.
+     *
+     * @param event sticky event whose propagation was not stopped.
+     * @param listener listener just added for its class and name.
+     */
+    protected void replayStickyEvent(IBaseEvent event, EventListener listener) {
+        EventQueue queue = _queue.get();
+        if (queue.processing || !queue.isEmpty()) {
+            // added by a handler, deliver after the pending events
+            enqueueEvent(event, listener);
+            processQueue();
+            return;
+        }
+
+        queue.processing = true;
+        try {
+            process(event, listener);
+            drainQueue(queue);
+        } finally {
+            queue.processing = false;
+        }
+    }
+
+    /**
+     * Dispatches a burst of events at once. Events are grouped by class and name, listeners are looked up once per
+     * group and the queue is drained once at the end. A {@link BatchEventHandler} receives each group in a single
+     * call.
+     *
+     * <p>Groups are delivered in the order their first event appears in {@code events}, events of a group in their
+     * original order. When called from a handler, or when {@link #enqueueEvent(IBaseEvent, EventListener)} is
+     * overridden, the events are queued behind the pending deliveries instead, one at a time. When a handler throws,
+     * the deliveries left are kept queued for the next dispatch, ahead of the events its handlers dispatched.</p>
+     *
+     * @param events events to dispatch.
+     */
+    public void dispatchEvents(Collection<? extends IBaseEvent> events) {
+        bindLooper();
+
+        List<EventGroup> groups = group(events);
+        DispatchMetrics metrics = _metrics;
+        if (metrics != null) {
+            for (IBaseEvent event : events) {
+                metrics.recordDispatch(event);
+            }
+        }
+        deliver(groups);
+    }
+
+    /**
+     * Delivers {@code groups} group by group on this thread, or queues them behind the pending deliveries.
+     */
+    private void deliver(List<EventGroup> groups) {
+        EventQueue queue = _queue.get();
+
+        if (queue.processing || !queue.isEmpty() || !_directDelivery) {
+            for (int g = 0; g < groups.size(); g++) {
+                List<IBaseEvent> group = groups.get(g).events;
+                ListenerSnapshot listeners = getEventListeners(group.get(0));
+                beginGroup(group);
+                try {
+                    for (int e = 0; e < group.size(); e++) {
+                        for (int i = 0; i < listeners.size(); i++) {
+                            enqueueEvent(group.get(e), listeners.get(i));
+                        }
+                    }
+                } finally {
+                    endGroup(group);
+                }
+            }
+
+            processQueue();
+            return;
+        }
+
+        FanOut fanOut = _fanOut;
+        int g = 0;
+        ListenerSnapshot listeners = null;
+        int next = 0;
+        // run of thread safe listeners being fanned out, and the next of the group events to hand to it
+        int runFrom = 0;
+        int runTo = 0;
+        int runEvent = 0;
+        boolean delivered = false;
+        queue.processing = true;
+        try {
+            for (; g < groups.size(); g++) {
+                List<IBaseEvent> group = groups.get(g).events;
+                listeners = getEventListeners(group.get(0));
+                next = 0;
+                runFrom = runTo = runEvent = 0;
+                beginGroup(group);
+                try {
+                    while (next < listeners.size()) {
+                        EventListener listener = listeners.get(next);
+                        if (fanOut != null && listener.isThreadSafe() && !listener.isBatch()) {
+                            runFrom = next;
+                            runTo = endOfThreadSafeRun(listeners, runFrom);
+                            next = runTo;
+                            for (runEvent = 0; runEvent < group.size(); ) {
+                                IBaseEvent event = group.get(runEvent++);
+                                if (!isPropagationStopped(event)) {
+                                    fanOut(fanOut, event, listeners, runFrom, runTo);
+                                }
+                            }
+                            continue;
+                        }
+                        next++;
+                        if (listener.isValid()) {
+                            processBatch(group, listener);
+                        }
+                    }
+                } finally {
+                    endGroup(group);
+                }
+            }
+            delivered = true;
+
+            drainQueue(queue);
+        } finally {
+            if (!delivered && listeners != null) {
+                requeue(queue, groups, g, listeners, next, runFrom, runTo, runEvent);
+            }
+            queue.processing = false;
+        }
+    }
+
+    /**
+     * Puts what a failed batch delivery left undelivered back at the head of {@code queue}, ahead of the events its
+     * handlers dispatched, in the order it would have been queued: the rest of the failed fan out run, the listeners
+     * of group {@code g} after {@code next}, then every later group.
+     */
+    private void requeue(EventQueue queue, List<EventGroup> groups, int g, ListenerSnapshot listeners, int next,
+                         int runFrom, int runTo, int runEvent) {
+        List<IBaseEvent> events = new ArrayList<IBaseEvent>();
+        List<EventListener> targets = new ArrayList<EventListener>();
+
+        List<IBaseEvent> group = groups.get(g).events;
+        for (int e = runEvent; e < group.size(); e++) {
+            for (int i = runFrom; i < runTo; i++) {
+                events.add(group.get(e));
+                targets.add(listeners.get(i));
+            }
+        }
+        for (int e = 0; e < group.size(); e++) {
+            for (int i = next; i < listeners.size(); i++) {
+                events.add(group.get(e));
+                targets.add(listeners.get(i));
+            }
+        }
+        for (int later = g + 1; later < groups.size(); later++) {
+            group = groups.get(later).events;
+            ListenerSnapshot laterListeners = getEventListeners(group.get(0));
+            for (int e = 0; e < group.size(); e++) {
+                for (int i = 0; i < laterListeners.size(); i++) {
+                    events.add(group.get(e));
+                    targets.add(laterListeners.get(i));
+                }
+            }
+        }
+
+        for (int i = events.size() - 1; i >= 0; i--) {
+            queue.offerFirst(events.get(i), targets.get(i));
+        }
+    }
+
+    /**
+     * Opens a dispatch of each event of {@code group} with the tracer, in order, under the event being handled on
+     * this thread.
+     */
+    private void beginGroup(List<IBaseEvent> group) {
+        DispatchTracer tracer = _tracer;
+        if (tracer == null) {
+            return;
+        }
+        IBaseEvent parent = tracedEvent();
+        for (int e = 0; e < group.size(); e++) {
+            tracer.dispatchBegin(this, group.get(e), parent);
+        }
+    }
+
+    /**
+     * Closes the dispatches opened by {@link #beginGroup(List)} in reverse order, so they nest.
+     */
+    private void endGroup(List<IBaseEvent> group) {
+        DispatchTracer tracer = _tracer;
+        if (tracer == null) {
+            return;
+        }
+        for (int e = group.size() - 1; e >= 0; e--) {
+            tracer.dispatchEnd(this, group.get(e));
+        }
+    }
+
+    /**
+     * Splits {@code events} by class and name, keeping the order of first appearance.
+     */
+    private static List<EventGroup> group(Collection<? extends IBaseEvent> events) {
+        List<EventGroup> groups = new ArrayList<EventGroup>();
+        Map<Class<?>, Map<String, EventGroup>> index = null;
+        EventGroup last = null;
+
+        for (IBaseEvent event : events) {
+            if (event == null) {
+                throw new NullPointerException("Event to dispatchEvents must not be null.");
+            }
+
+            // bursts of one kind of event never touch the index
+            if (last != null && last.type == event.getClass() && last.name.equals(event.getName())) {
+                last.events.add(event);
+                continue;
+            }
+
+            if (index == null) {
+                index = new HashMap<Class<?>, Map<String, EventGroup>>();
+            }
+            Map<String, EventGroup> names = index.get(event.getClass());
+            if (names == null) {
+                names = new HashMap<String, EventGroup>();
+                index.put(event.getClass(), names);
+            }
+            last = names.get(event.getName());
+            if (last == null) {
+                last = new EventGroup(event);
+                names.put(event.getName(), last);
+                groups.add(last);
+            }
+            last.events.add(event);
+        }
+        return groups;
+    }
+
+    /**
+     * Dispatches an event and enqueues so to check all listeners and
+     * execute accordingly, this is called externally
+     *
+     * sourceTarget is optional
+     *
+     * @param event
+     * @param sourceTarget
+     */
+    public void dispatchEvent(IBaseEvent event, Object sourceTarget) {
+        if (event == null) {
+            throw new NullPointerException("Event to dispatchEvent must not be null.");
+        }
+
+        if(sourceTarget == _target) {
+            dispatchEvent(event);
+        }
+    }
+
+    /**
+     * Queue the {@code event} for dispatch during {@link #dispatchEvent(IBaseEvent, Object)}.
+     * FIFO order. Only called for events dispatched while another dispatch is in progress on this thread.
+     *
+     * @param event
+     * @param listener
+     */
+    protected void enqueueEvent(IBaseEvent event, EventListener listener) {
+        EventQueue queue = _queue.get();
+
+        ConflationKey conflationKey = _conflationKey;
+        Object key = conflationKey == null ? null
+                // the queue compares class and name itself, no key has to be built for each event
+                : conflationKey == ConflationKey.CLASS_AND_NAME ? conflationKey : conflationKey.keyOf(event);
+        if (key != null && queue.replace(event, listener, key)) {
+            _conflated.incrementAndGet();
+            return;
+        }
+
+        int capacity = _queueCapacity;
+        if (queue.size() >= capacity) {
+            switch (_overflowPolicy) {
+                case DROP_NEWEST:
+                    dropped(1);
+                    return;
+                case DROP_OLDEST:
+                    queue.poll();
+                    dropped(1);
+                    break;
+                case CALL_HANDLER:
+                    dropped(1);
+                    onQueueOverflow(event, listener);
+                    return;
+                default:
+                    // nobody else drains this queue, blocking would never end
+                    throw new IllegalStateException("Event queue of " + this + " is full with " + capacity
+                            + " pending events.");
+            }
+        }
+
+        queue.offer(event, listener, key);
+        recordQueueDepth(queue.size());
+
+        DispatchMetrics metrics = _metrics;
+        if (metrics != null) {
+            metrics.recordReentrantEnqueue();
+        }
+        traceEnqueued(event, listener);
+    }
+
+    /**
+     * Dispatches {@code event} to the handler in {@code wrapper}.  This method is an appropriate override point for
+     * subclasses that wish to make event delivery asynchronous.
+     *
+     * @param event event to dispatch.
+     * @param listener wrapper that will call the handler.
+     */
+    protected void process(IBaseEvent event, EventListener listener) {
+        DispatchTracer tracer = _tracer;
+        if (tracer != null) {
+            processTraced(event, listener, tracer);
+            return;
+        }
+
+        DispatchMetrics metrics = _metrics;
+        long start = metrics != null ? System.nanoTime() : 0L;
+        try {
+            listener.handleEvent(event);
+        } catch (InvocationTargetException e) {
+            throwRuntimeException("Could not dispatch event: " + event.getClass() + " to listener " + listener, e);
+        } finally {
+            if (metrics != null) {
+                metrics.recordInvocation(listener, System.nanoTime() - start);
+            }
+        }
+    }
+
+    /**
+     * {@link #process(IBaseEvent, EventListener)} reporting to {@code tracer}, with {@code event} as the parent of
+     * whatever the handler dispatches.
+     */
+    private void processTraced(IBaseEvent event, EventListener listener, DispatchTracer tracer) {
+        DispatchMetrics metrics = _metrics;
+        TraceFrame frame = TRACE_FRAME.get();
+        IBaseEvent parent = frame.current;
+        Throwable failure = null;
+
+        frame.current = event;
+        tracer.invokeBegin(this, event, listener);
+        long start = metrics != null ? System.nanoTime() : 0L;
+        try {
+            listener.handleEvent(event);
+        } catch (InvocationTargetException e) {
+            failure = e.getCause() != null ? e.getCause() : e;
+            throwRuntimeException("Could not dispatch event: " + event.getClass() + " to listener " + listener, e);
+        } catch (RuntimeException e) {
+            failure = e;
+            throw e;
+        } catch (Error e) {
+            failure = e;
+            throw e;
+        } finally {
+            if (metrics != null) {
+                metrics.recordInvocation(listener, System.nanoTime() - start);
+            }
+            frame.current = parent;
+            tracer.invokeEnd(this, event, listener, failure);
+        }
+    }
+
+    /**
+     * Dispatches a group of {@code events} sharing one class and name to the handler in {@code listener}. Hands the
+     * whole group to a {@link BatchEventHandler}, and each event to {@link #process(IBaseEvent, EventListener)}
+     * otherwise.
+     *
+     * @param events events to dispatch, in order.
+     * @param listener wrapper that will call the handler.
+     */
+    protected void processBatch(List<IBaseEvent> events, EventListener listener) {
+        if (!listener.isBatch()) {
+            for (int i = 0, size = events.size(); i < size; i++) {
+                IBaseEvent event = events.get(i);
+                if (!isPropagationStopped(event)) {
+                    process(event, listener);
+                }
+            }
+            return;
+        }
+
+        events = withoutStopped(events);
+        if (events.isEmpty()) {
+            return;
+        }
+
+        DispatchMetrics metrics = _metrics;
+        long start = metrics != null ? System.nanoTime() : 0L;
+        try {
+            listener.handleEvents(events);
+        } catch (InvocationTargetException e) {
+            throwRuntimeException("Could not dispatch events: " + events.get(0).getClass() + " to listener " + listener,
+                    e);
+        } finally {
+            if (metrics != null) {
+                metrics.recordInvocation(listener, System.nanoTime() - start);
+            }
+        }
+    }
+
+    /**
+     * Index of the first listener after the run of thread safe, non batch, listeners starting at {@code from}.
+     */
+    private static int endOfThreadSafeRun(ListenerSnapshot listeners, int from) {
+        int to = from + 1;
+        while (to < listeners.size() && listeners.get(to).isThreadSafe() && !listeners.get(to).isBatch()) {
+            to++;
+        }
+        return to;
+    }
+
+    /**
+     * Delivers {@code event} to the thread safe listeners from {@code from} to {@code to}, in chunks on the fan out
+     * pool when the run is longer than one chunk, and waits for all of them.
+     *
+     * @throws RuntimeException the failure of a single listener, or one carrying every other failure as suppressed.
+     */
+    private void fanOut(FanOut fanOut, IBaseEvent event, ListenerSnapshot listeners, int from, int to) {
+        FanOutTask task = new FanOutTask(this, event, tracedEvent(), listeners, from, to, fanOut.chunkSize,
+                new ConcurrentLinkedQueue<Throwable>());
+        if (to - from <= fanOut.chunkSize) {
+            task.compute();
+        } else {
+            fanOut.pool.invoke(task);
+        }
+
+        Throwable first = task.failures.poll();
+        if (first == null) {
+            return;
+        }
+        if (task.failures.isEmpty()) {
+            if (first instanceof Error) {
+                throw (Error) first;
+            }
+            throw (RuntimeException) first;
+        }
+        RuntimeException failure = new RuntimeException((task.failures.size() + 1)
+                + " listeners failed handling event: " + event.getClass(), first);
+        for (Throwable other : task.failures) {
+            failure.addSuppressed(other);
+        }
+        throw failure;
+    }
+
+    /**
+     * Whether {@code event} is an {@link ICancellableEvent} a listener consumed.
+     */
+    static boolean isPropagationStopped(IBaseEvent event) {
+        return event instanceof ICancellableEvent && ((ICancellableEvent) event).isPropagationStopped();
+    }
+
+    /**
+     * {@code events} without the consumed ones, the same list when none was consumed.
+     */
+    private static List<IBaseEvent> withoutStopped(List<IBaseEvent> events) {
+        List<IBaseEvent> kept = null;
+        for (int i = 0, size = events.size(); i < size; i++) {
+            IBaseEvent event = events.get(i);
+            if (isPropagationStopped(event)) {
+                if (kept == null) {
+                    kept = new ArrayList<IBaseEvent>(events.subList(0, i));
+                }
+            } else if (kept != null) {
+                kept.add(event);
+            }
+        }
+        return kept != null ? kept : events;
+    }
+
+    /**
+     * Throw a {@link RuntimeException} with a message and start a {@link
+     * InvocationTargetException}. If the specified {@link InvocationTargetException} does not
+     * originate properly, then it will not show {@link RuntimeException}.
+     */
+    private static void throwRuntimeException(String msg, InvocationTargetException e) {
+        Throwable cause = e.getCause();
+        if (cause != null) {
+            throw new RuntimeException(msg + ": " + cause.getMessage(), cause);
+        } else {
+            throw new RuntimeException(msg + ": " + e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Drain the queue of events to be dispatched. As the queue is being drained, new events may be posted to the end of
+     * the queue.
+     */
+    protected void processQueue() {
+        // don't dispatch if we're already dispatching, that would allow reentrancy and out-of-order events. Instead, leave
+        // the events to be dispatched after the in-progress dispatch is complete.
+        EventQueue queue = _queue.get();
+        if (queue.processing) {
+            return;
+        }
+
+        queue.processing = true;
+        try {
+            drainQueue(queue);
+        } finally {
+            queue.processing = false;
+        }
+    }
+
+    private void drainQueue(EventQueue queue) {
+        while (!queue.isEmpty()) {
+            IBaseEvent event = queue.peekEvent();
+            EventListener listener = queue.poll();
+
+            // a consumed event skips the rest of its queued deliveries
+            if (listener.isValid() && !isPropagationStopped(event)) {
+                process(event, listener);
+            }
+        }
+    }
+
+    /**
+     * Returns a string description of the object
+     *
+     * @return
+     */
+    @Override public String toString() {
+        return "[EventSatellite \"" + _id + "\"]";
+    }
+
+    /**
+     * Turns hierarchy dispatch on or off. When on, an event also reaches the listeners registered with the same
+     * name for its superclasses and interfaces, by priority then most specific type first. Off by default.
+     *
+     * <p>Supertypes are flattened once per event class and the merged listeners are cached until the next add or
+     * remove, so dispatch does not walk the class hierarchy.</p>
+     */
+    public void setDispatchHierarchy(boolean dispatchHierarchy) {
+        _dispatchHierarchy = dispatchHierarchy;
+    }
+
+    public boolean isDispatchHierarchy() {
+        return _dispatchHierarchy;
+    }
+
+    /**
+     * Listeners registered under the class and name of {@code event}, in delivery order. Removed listeners may
+     * still be there, invalidated, and must be skipped.
+     *
+     * @return the listener snapshot.
+     */
+    protected ListenerSnapshot getEventListeners(IBaseEvent event) {
+        purgeCollectedListeners();
+
+        if (_dispatchHierarchy) {
+            return _listeners.getHierarchy(event.getClass(), event.getName());
+        }
+        return _listeners.get(event.getClass(), event.getName());
+    }
+
+    /**
+     * Turns weak listeners on or off. When on, listeners added afterwards by {@link #addEventListener(IBaseEvent,
+     * EventListener)} or {@link #register(Object)} do not keep their targets reachable, and are removed once the
+     * targets have been collected. Off by default.
+     *
+     * <p>Collected listeners are purged a few at a time on add, register and dispatch, and never receive events in
+     * between.</p>
+     */
+    public void setWeakListeners(boolean weakListeners) {
+        _weakListeners = weakListeners;
+    }
+
+    public boolean isWeakListeners() {
+        return _weakListeners;
+    }
+
+    /**
+     * Turns conflation on with {@code conflationKey}, or off with null. When on, an event queued for a listener
+     * replaces its pending, not yet delivered, event with an equal key, keeping the earlier place in the queue. Slow
+     * listeners then only see the latest state. Off by default.
+     *
+     * <p>Events are pending while queued behind a dispatch in progress on the same thread, or in the mailboxes of an
+     * {@link AsyncEventDispatcher}.</p>
+     *
+     * @param conflationKey key of superseding events, such as {@link ConflationKey#CLASS_AND_NAME}.
+     */
+    public void setConflationKey(ConflationKey conflationKey) {
+        _conflationKey = conflationKey;
+    }
+
+    public ConflationKey getConflationKey() {
+        return _conflationKey;
+    }
+
+    /**
+     * Counts the pending events replaced by newer ones since creation.
+     */
+    public long countConflatedEvents() {
+        return _conflated.get();
+    }
+
+    /**
+     * Records {@code count} pending events replaced by newer ones, for subclasses queueing events themselves.
+     */
+    protected final void conflated(int count) {
+        _conflated.addAndGet(count);
+    }
+
+    /**
+     * Turns instrumentation on with {@code metrics}, or off with null. Off by default, costing a null check per
+     * dispatch and delivery. Several dispatchers may share one {@link DispatchMetrics}.
+     *
+     * @param metrics where dispatch counts, handler times and queue depths are recorded.
+     */
+    public void setMetrics(DispatchMetrics metrics) {
+        _metrics = metrics;
+    }
+
+    public DispatchMetrics getMetrics() {
+        return _metrics;
+    }
+
+    /**
+     * Runs listeners marked {@link EventListener#threadSafe()} on {@code pool} when dispatching an event with more
+     * than {@code chunkSize} of them in a row, or turns this off with a null {@code pool}. Off by default.
+     *
+     * <p>Each run of thread safe listeners, in priority order, is split into chunks of {@code chunkSize} and the
+     * dispatch waits for all chunks before moving on to the next listener. Failures do not stop the other chunks and
+     * are thrown together once the run completes. Only deliveries made straight from {@code dispatchEvent} fan out,
+     * queued ones are still made one at a time. Handlers then run on pool threads, so a dispatcher they dispatch on
+     * must accept those threads.</p>
+     *
+     * @param pool pool running the chunks.
+     * @param chunkSize number of listeners a pool thread handles in turn, at least 1.
+     */
+    public void setFanOut(ForkJoinPool pool, int chunkSize) {
+        if (chunkSize < 1) {
+            throw new IllegalArgumentException("Fan out chunk size must be at least 1, was " + chunkSize);
+        }
+        _fanOut = pool != null ? new FanOut(pool, chunkSize) : null;
+    }
+
+    /**
+     * Turns tracing on with {@code tracer}, or off with null. Off by default, costing a null check per dispatch and
+     * delivery and no allocation. Events dispatched by a handler are reported with the event it handles as parent,
+     * when both dispatchers trace.
+     *
+     * @param tracer told when events are dispatched, queued and handled.
+     */
+    public void setTracer(DispatchTracer tracer) {
+        _tracer = tracer;
+    }
+
+    public DispatchTracer getTracer() {
+        return _tracer;
+    }
+
+    /**
+     * Reports the delivery of {@code event} to {@code listener} as queued, for subclasses queueing events themselves.
+     */
+    protected final void traceEnqueued(IBaseEvent event, EventListener listener) {
+        DispatchTracer tracer = _tracer;
+        if (tracer != null) {
+            tracer.enqueued(this, event, listener);
+        }
+    }
+
+    /**
+     * Event whose handler runs on this thread under a tracing dispatcher, null if none.
+     */
+    static IBaseEvent tracedEvent() {
+        return TRACE_FRAME.get().current;
+    }
+
+    /**
+     * Bounds every queue of pending events to {@code capacity}, applying {@code policy} to events arriving while it
+     * is full. Unbounded by default.
+     *
+     * <p>Queues are the re-entrant queue of each dispatching thread, and the per-listener mailboxes of an
+     * {@link AsyncEventDispatcher}.</p>
+     *
+     * @param capacity most events pending in one queue, {@link Integer#MAX_VALUE} for no bound.
+     * @param policy what a full queue does.
+     * @throws IllegalArgumentException if {@code capacity} is not positive.
+     */
+    public void setQueueCapacity(int capacity, OverflowPolicy policy) {
+        if (capacity < 1) {
+            throw new IllegalArgumentException("Queue capacity must be positive: " + capacity);
+        }
+        if (policy == null) {
+            throw new NullPointerException("Overflow policy cannot be null.");
+        }
+        _overflowPolicy = policy;
+        _queueCapacity = capacity;
+    }
+
+    public int getQueueCapacity() {
+        return _queueCapacity;
+    }
+
+    public OverflowPolicy getOverflowPolicy() {
+        return _overflowPolicy;
+    }
+
+    /**
+     * Called with an event a full queue could not take under {@link OverflowPolicy#CALL_HANDLER}, on the producing
+     * thread. Does nothing by default, the event is dropped.
+     *
+     * @param event event that was not queued.
+     * @param listener listener it was meant for.
+     */
+    protected void onQueueOverflow(IBaseEvent event, EventListener listener) {
+    }
+
+    /**
+     * Deepest any queue of pending events has been since creation.
+     */
+    public int getQueueHighWaterMark() {
+        return _queueHighWaterMark.get();
+    }
+
+    /**
+     * Counts the events full queues dropped or handed to {@link #onQueueOverflow(IBaseEvent, EventListener)}.
+     */
+    public long countDroppedEvents() {
+        return _dropped.get();
+    }
+
+    /**
+     * Records a queue of pending events reaching {@code depth}, for subclasses queueing events themselves.
+     */
+    protected final void recordQueueDepth(int depth) {
+        DispatchMetrics metrics = _metrics;
+        if (metrics != null) {
+            metrics.recordQueueDepth(depth);
+        }
+
+        int mark;
+        while (depth > (mark = _queueHighWaterMark.get())) {
+            if (_queueHighWaterMark.compareAndSet(mark, depth)) {
+                return;
+            }
+        }
+    }
+
+    /**
+     * Records {@code count} events a full queue did not keep, for subclasses queueing events themselves.
+     */
+    protected final void dropped(int count) {
+        _dropped.addAndGet(count);
+    }
+
+    /**
+     * Counts the weak listeners removed since creation because their target was collected.
+     */
+    public long countPurgedListeners() {
+        return _purged.get();
+    }
+
+    /**
+     * Removes up to {@link #PURGE_BATCH} weak listeners whose target has been collected.
+     */
+    private void purgeCollectedListeners() {
+        Reference<?> reference;
+        for (int i = 0; i < PURGE_BATCH && (reference = _collected.poll()) != null; i++) {
+            EventListener listener = ((EventListener.TargetReference) reference).listener;
+            if (_listeners.removeIdentical(listener.getEventClass(), listener.getEventName(), listener)
+                    || _captureListeners.removeIdentical(listener.getEventClass(), listener.getEventName(), listener)) {
+                listener.invalidate();
+                _purged.incrementAndGet();
+            }
+        }
+    }
+
+    /**
+     * Enforces the looper binder according to the {@link BindPolicy}. Called by every public operation.
+     */
+    protected final void bindLooper() {
+        if (_boundThread != null) {
+            if (Thread.currentThread() != _boundThread) {
+                // let the binder report the violation
+                _binder.bind(this);
+            }
+        } else if (_bindPolicy == BindPolicy.CUSTOM) {
+            _binder.bind(this);
+        }
+    }
+
+    /**
+     * Get how the looper binder is enforced.
+     *
+     * @return
+     */
+    public BindPolicy getBindPolicy() {
+        return _bindPolicy;
+    }
+
+    /**
+     * Get the looper binder enforced on register, unregister, and posting events.
+     *
+     * @return
+     */
+    public LooperBinder getBinder() {
+        return _binder;
+    }
+
+    /**
+     * Get the current target.
+     *
+     * @return
+     */
+    public Object getTarget() {
+        return _target;
+    }
+
+    /**
+     * Destroys and clears the satellite.
+     * Must be destroyed to clear up any residues in memory and
+     * thread zombies.
+     */
+    public void destroy() {
+        removeAllEventListener();
+        removeAllStickyEvents();
+
+        _queue.remove();
+    }
+
+    /** Pool and chunk size of {@link #setFanOut(ForkJoinPool, int)}. */
+    private static final class FanOut {
+        final ForkJoinPool pool;
+        final int chunkSize;
+
+        FanOut(ForkJoinPool pool, int chunkSize) {
+            this.pool = pool;
+            this.chunkSize = chunkSize;
+        }
+    }
+
+    /** Delivers one event to a range of listeners, splitting it in halves down to the chunk size. */
+    private static final class FanOutTask extends RecursiveAction {
+        private static final long serialVersionUID = 1L;
+
+        final EventDispatcher dispatcher;
+        final IBaseEvent event;
+        /** Event handled on the dispatching thread, restored as the trace parent on the pool threads. */
+        final IBaseEvent parent;
+        final ListenerSnapshot listeners;
+        final int from;
+        final int to;
+        final int chunkSize;
+        final ConcurrentLinkedQueue<Throwable> failures;
+
+        FanOutTask(EventDispatcher dispatcher, IBaseEvent event, IBaseEvent parent, ListenerSnapshot listeners,
+                   int from, int to, int chunkSize, ConcurrentLinkedQueue<Throwable> failures) {
+            this.dispatcher = dispatcher;
+            this.event = event;
+            this.parent = parent;
+            this.listeners = listeners;
+            this.from = from;
+            this.to = to;
+            this.chunkSize = chunkSize;
+            this.failures = failures;
+        }
+
+        @Override protected void compute() {
+            if (to - from > chunkSize) {
+                int middle = (from + to) >>> 1;
+                invokeAll(new FanOutTask(dispatcher, event, parent, listeners, from, middle, chunkSize, failures),
+                        new FanOutTask(dispatcher, event, parent, listeners, middle, to, chunkSize, failures));
+                return;
+            }
+
+            // a pool thread may be joining another task of its own, put its frame back afterwards
+            TraceFrame frame = TRACE_FRAME.get();
+            IBaseEvent previous = frame.current;
+            frame.current = parent;
+            try {
+                for (int i = from; i < to; i++) {
+                    EventListener listener = listeners.get(i);
+                    if (!listener.isValid() || isPropagationStopped(event)) {
+                        continue;
+                    }
+                    try {
+                        dispatcher.process(event, listener);
+                    } catch (RuntimeException e) {
+                        failures.add(e);
+                    } catch (Error e) {
+                        failures.add(e);
+                    }
+                }
+            } finally {
+                frame.current = previous;
+            }
+        }
+    }
+
+    /** Ancestors of a dispatcher, as of a number of tree changes. */
+    private static final class AncestorPath {
+        final EventDispatcher[] dispatchers;
+        final int changes;
+
+        AncestorPath(EventDispatcher[] dispatchers, int changes) {
+            this.dispatchers = dispatchers;
+            this.changes = changes;
+        }
+    }
+
+    /** Handler context of a thread, see {@link #tracedEvent()}. */
+    private static final class TraceFrame {
+        IBaseEvent current;
+    }
+
+    /** Events of one class and name within a {@link #dispatchEvents(Collection)} batch. */
+    private static final class EventGroup {
+        final Class<?> type;
+        final String name;
+        final List<IBaseEvent> events = new ArrayList<IBaseEvent>();
+
+        EventGroup(IBaseEvent first) {
+            type = first.getClass();
+            name = first.getName();
         }
     }
 }
@@ -0,0 +1,39 @@
+/*
+ * Copyright (C) 2015 Fantom Digital Pty. Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package au.com.fantomdigital.fantomeventj;
+
+/**
+ * EventInvoker: A handler method call already bound to its target object.
+ *
+ * <p>Invokers are resolved once when an {@link EventListener} is created so that every delivery afterwards is a
+ * plain interface call on the dispatching thread.</p>
+ *
+ * Project: fantomeventj
+ *
+ * @author sfdi
+ * @date 17/10/26
+ */
+public interface EventInvoker {
+
+  /**
+   * Calls the handler method with {@code event}.
+   *
+   * @param event event to hand to the handler method.
+   * @throws Throwable whatever the handler method throws, unwrapped.
+   */
+  void invoke(Object event) throws Throwable;
+}
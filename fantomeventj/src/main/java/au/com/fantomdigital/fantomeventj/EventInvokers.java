@@ -0,0 +1,314 @@
+/*
+ * Copyright (C) 2015 Fantom Digital Pty. Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package au.com.fantomdigital.fantomeventj;
+
+import java.lang.invoke.CallSite;
+import java.lang.invoke.LambdaMetafactory;
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.ref.Reference;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * EventInvokers: Resolves the fastest {@link EventInvoker} the running VM supports for a handler method.
+ *
+ * <p>Strategies are tried in order:</p>
+ * <ol>
+ *   <li>a {@link LambdaMetafactory} generated class calling the handler directly (JVM 9+),</li>
+ *   <li>a bound {@link MethodHandle} called through {@code invokeExact} (JVM 7+, Android O+),</li>
+ *   <li>plain {@link Method#invoke(Object, Object...)}.</li>
+ * </ol>
+ *
+ * <p>Each strategy lives in its own nested class so that VMs without {@code java.lang.invoke} never load it. The
+ * strategy of each method is resolved once per process.</p>
+ *
+ * Project: fantomeventj
+ *
+ * @author sfdi
+ * @date 17/10/26
+ */
+final class EventInvokers {
+  private static final ConcurrentMap<Method, Factory> FACTORIES = new ConcurrentHashMap<Method, Factory>();
+
+  private EventInvokers() {
+    // No instances.
+  }
+
+  /**
+   * Creates an invoker calling {@code method} on {@code target}. The method must already be accessible.
+   *
+   * @param target object sporting the handler method, ignored for static methods.
+   * @param method handler method taking a single event argument.
+   * @return the invoker, never null.
+   */
+  static EventInvoker create(Object target, Method method) {
+    return factory(method).bind(target);
+  }
+
+  /**
+   * Strategy for {@code method}, resolved on first use, so binding it to targets afterwards is cheap. The method
+   * must already be accessible.
+   *
+   * @param method handler method taking a single event argument.
+   * @return the factory, never null.
+   */
+  static Factory factory(Method method) {
+    Factory factory = FACTORIES.get(method);
+    if (factory == null) {
+      factory = resolve(method);
+      Factory raced = FACTORIES.putIfAbsent(method, factory);
+      if (raced != null) {
+        factory = raced;
+      }
+    }
+    return factory;
+  }
+
+  private static Factory resolve(Method method) {
+    try {
+      return LambdaInvokers.factory(method);
+    } catch (Throwable ignored) {
+      // Not supported here, try the next strategy.
+    }
+
+    try {
+      return MethodHandleInvokers.factory(method);
+    } catch (Throwable ignored) {
+      // Not supported here, fall back to reflection.
+    }
+
+    return new ReflectiveFactory(method);
+  }
+
+  /** Binds one resolved handler method to target objects. */
+  interface Factory {
+    EventInvoker bind(Object target);
+
+    /**
+     * Invoker taking the target as an argument, for targets that are only weakly held.
+     */
+    TargetEventInvoker unbound();
+  }
+
+  /** Invoker calling a {@link TargetEventInvoker} with the target it holds. */
+  static final class BoundInvoker implements EventInvoker {
+    private final Object _target;
+    private final TargetEventInvoker _invoker;
+
+    BoundInvoker(Object target, TargetEventInvoker invoker) {
+      _target = target;
+      _invoker = invoker;
+    }
+
+    public void invoke(Object event) throws Throwable {
+      _invoker.invoke(_target, event);
+    }
+  }
+
+  /** Invoker calling a weakly held target, doing nothing once the target has been collected. */
+  static final class WeakInvoker implements EventInvoker {
+    private final Reference<?> _target;
+    private final TargetEventInvoker _invoker;
+
+    WeakInvoker(Reference<?> target, TargetEventInvoker invoker) {
+      _target = target;
+      _invoker = invoker;
+    }
+
+    public void invoke(Object event) throws Throwable {
+      Object target = _target.get();
+      if (target != null) {
+        _invoker.invoke(target, event);
+      }
+    }
+  }
+
+  /** Generates a class implementing {@link EventInvoker} inside the handler's own nest. */
+  static final class LambdaInvokers {
+    private static final MethodType SAM_TYPE = MethodType.methodType(void.class, Object.class);
+
+    /** {@code MethodHandles.privateLookupIn}, looked up reflectively as it only exists from Java 9. */
+    private static final Method PRIVATE_LOOKUP_IN;
+
+    static {
+      Method privateLookupIn = null;
+      try {
+        privateLookupIn = MethodHandles.class.getMethod("privateLookupIn", Class.class, MethodHandles.Lookup.class);
+      } catch (NoSuchMethodException e) {
+        // Java 8 and Android, lambdas can not be spun into foreign classes.
+      }
+      PRIVATE_LOOKUP_IN = privateLookupIn;
+    }
+
+    static Factory factory(Method method) throws Throwable {
+      if (PRIVATE_LOOKUP_IN == null) {
+        throw new UnsupportedOperationException("privateLookupIn is not available.");
+      }
+
+      Class<?> owner = method.getDeclaringClass();
+      MethodHandles.Lookup caller =
+              (MethodHandles.Lookup) PRIVATE_LOOKUP_IN.invoke(null, owner, MethodHandles.lookup());
+      final MethodHandle implementation = caller.unreflect(method);
+      MethodType instantiated = MethodType.methodType(void.class, method.getParameterTypes()[0]);
+
+      if (Modifier.isStatic(method.getModifiers())) {
+        CallSite site = LambdaMetafactory.metafactory(caller, "invoke", MethodType.methodType(EventInvoker.class),
+                SAM_TYPE, implementation, instantiated);
+        return new SharedFactory((EventInvoker) site.getTarget().invoke());
+      }
+
+      CallSite site = LambdaMetafactory.metafactory(caller, "invoke", MethodType.methodType(EventInvoker.class, owner),
+              SAM_TYPE, implementation, instantiated);
+      final MethodHandle constructor = site.getTarget();
+      return new Factory() {
+        private volatile TargetEventInvoker _unbound;
+
+        public EventInvoker bind(Object target) {
+          try {
+            return (EventInvoker) constructor.invoke(target);
+          } catch (Throwable e) {
+            throw new IllegalStateException("Could not bind " + target + " to its generated invoker.", e);
+          }
+        }
+
+        public TargetEventInvoker unbound() {
+          // Only weak listeners need it, so it is not spun into the handler's nest up front.
+          TargetEventInvoker unbound = _unbound;
+          if (unbound == null) {
+            unbound = MethodHandleInvokers.unbound(implementation);
+            _unbound = unbound;
+          }
+          return unbound;
+        }
+      };
+    }
+  }
+
+  /** Binds the handler into a {@link MethodHandle} of type {@code (Object)void}. */
+  static final class MethodHandleInvokers {
+    private static final MethodType INVOKE_TYPE = MethodType.methodType(void.class, Object.class);
+    private static final MethodType TARGET_INVOKE_TYPE = MethodType.methodType(void.class, Object.class, Object.class);
+
+    static Factory factory(Method method) throws Throwable {
+      final MethodHandle handle = MethodHandles.lookup().unreflect(method);
+      if (Modifier.isStatic(method.getModifiers())) {
+        return new SharedFactory(new MethodHandleInvoker(handle.asType(INVOKE_TYPE)));
+      }
+
+      final TargetEventInvoker unbound = unbound(handle);
+      return new Factory() {
+        public EventInvoker bind(Object target) {
+          return new MethodHandleInvoker(handle.bindTo(target).asType(INVOKE_TYPE));
+        }
+
+        public TargetEventInvoker unbound() {
+          return unbound;
+        }
+      };
+    }
+
+    static TargetEventInvoker unbound(MethodHandle handle) {
+      final MethodHandle unbound = handle.asType(TARGET_INVOKE_TYPE);
+      return new TargetEventInvoker() {
+        public void invoke(Object target, Object event) throws Throwable {
+          unbound.invokeExact(target, event);
+        }
+      };
+    }
+  }
+
+  /** Factory of a static handler method, every target shares the same invoker. */
+  static final class SharedFactory implements Factory {
+    private final EventInvoker _invoker;
+
+    SharedFactory(EventInvoker invoker) {
+      _invoker = invoker;
+    }
+
+    public EventInvoker bind(Object target) {
+      return _invoker;
+    }
+
+    public TargetEventInvoker unbound() {
+      return new TargetEventInvoker() {
+        public void invoke(Object target, Object event) throws Throwable {
+          _invoker.invoke(event);
+        }
+      };
+    }
+  }
+
+  /** Factory of {@link ReflectiveInvoker}s. */
+  static final class ReflectiveFactory implements Factory {
+    private final Method _method;
+
+    ReflectiveFactory(Method method) {
+      _method = method;
+    }
+
+    public EventInvoker bind(Object target) {
+      return new ReflectiveInvoker(target, _method);
+    }
+
+    public TargetEventInvoker unbound() {
+      return new TargetEventInvoker() {
+        public void invoke(Object target, Object event) throws Throwable {
+          new ReflectiveInvoker(target, _method).invoke(event);
+        }
+      };
+    }
+  }
+
+  /** Invoker calling a bound {@link MethodHandle} with an exact type match, so nothing is boxed per call. */
+  static final class MethodHandleInvoker implements EventInvoker {
+    private final MethodHandle _handle;
+
+    MethodHandleInvoker(MethodHandle handle) {
+      _handle = handle;
+    }
+
+    public void invoke(Object event) throws Throwable {
+      _handle.invokeExact(event);
+    }
+  }
+
+  /** Invoker falling back to reflection, unwrapping {@link InvocationTargetException} to match the others. */
+  static final class ReflectiveInvoker implements EventInvoker {
+    private final Object _target;
+    private final Method _method;
+
+    ReflectiveInvoker(Object target, Method method) {
+      _target = target;
+      _method = method;
+    }
+
+    public void invoke(Object event) throws Throwable {
+      try {
+        _method.invoke(_target, event);
+      } catch (IllegalAccessException e) {
+        throw new AssertionError(e);
+      } catch (InvocationTargetException e) {
+        throw e.getCause();
+      }
+    }
+  }
+}
@@ -16,8 +16,12 @@
 
 package au.com.fantomdigital.fantomeventj;
 
+import java.lang.ref.ReferenceQueue;
+import java.lang.ref.WeakReference;
 import java.lang.reflect.InvocationTargetException;
 import java.lang.reflect.Method;
+import java.util.Collections;
+import java.util.List;
 
 /**
  * A listener that can map the target and method. This is to allow parsing of methods through functions
@@ -36,12 +40,32 @@ import java.lang.reflect.Method;
  */
 public class EventListener {
 
-  /** Object sporting the handler method. */
+  /** Object sporting the handler method, null when only weakly held. */
   private final Object _target;
-  /** Handler method. */
-  private final Method _method;
-  /** Event reference. */
+  /** Weak reference to the object sporting the handler method, null when strongly held. */
+  private final TargetReference _targetRef;
+  /** Class declaring the handler method. */
+  private final Class<?> _owner;
+  /** Name of the handler method. */
+  private final String _methodName;
+  /** Handler method, looked up on demand for listeners of a generated {@link SubscriberIndex}. */
+  private Method _method;
+  /** Handler call resolved once for the lifetime of the listener. */
+  private final EventInvoker _invoker;
+  /** Handler call taking the target, given by generated {@link SubscriberIndex} classes, null otherwise. */
+  private final TargetEventInvoker _unbound;
+  /** Event reference, null for listeners created by {@link EventDispatcher#register(Object)}. */
   private final IBaseEvent _listeningEvent;
+  /** Class of the events listened to. */
+  private final Class<?> _eventClass;
+  /** Name of the events listened to. */
+  private final String _eventName;
+  /** Whether the target is a {@link BatchEventHandler} rather than a handler method. */
+  private final boolean _batch;
+  /** Delivery priority, higher first. */
+  private final int _priority;
+  /** Whether the handler may run concurrently with other listeners of the same event. */
+  private final boolean _threadSafe;
   /** Object hash code. */
   private final int _hashCode;
   /** Should this handler receive events? */
@@ -59,7 +83,13 @@ public class EventListener {
     }
 
     this._listeningEvent = event;
+    this._eventClass = event.getClass();
+    this._eventName = event.getName();
     this._target = target;
+    this._targetRef = null;
+    this._batch = false;
+    this._priority = 0;
+    this._threadSafe = false;
 
     Class targetClass = target.getClass();
     Class eventClass = event.getClass();
@@ -73,16 +103,250 @@ public class EventListener {
 
         this._method = method;
         method.setAccessible(true);
+        this._invoker = EventInvokers.create(target, method);
+        this._unbound = null;
 
-        // Compute hash code eagerly since we know it will be used frequently and we cannot estimate the runtime of the
-        // target's hashCode call.
-        final int prime = 31;
-        _hashCode = (prime + method.hashCode()) * prime + _target.hashCode();
+        this._owner = method.getDeclaringClass();
+        this._methodName = method.getName();
+        _hashCode = hashCode(_owner, _methodName, _target);
     } catch (NoSuchMethodException e) {
       throw(e);
     }
   }
 
+  /**
+   * Creates a listener for a {@link Subscribe} method found by {@link SubscriberMethods}, reusing its resolved
+   * invoker strategy.
+   */
+  EventListener(SubscriberMethod subscriber, Object target) {
+    this._listeningEvent = null;
+    this._eventClass = subscriber.eventClass;
+    this._eventName = subscriber.eventName;
+    this._target = target;
+    this._targetRef = null;
+    this._batch = false;
+    this._method = subscriber.method;
+    this._owner = subscriber.method.getDeclaringClass();
+    this._methodName = subscriber.method.getName();
+    this._priority = subscriber.priority;
+    this._threadSafe = false;
+    this._invoker = subscriber.invokers.bind(target);
+    this._unbound = null;
+    _hashCode = hashCode(_owner, _methodName, _target);
+  }
+
+  /**
+   * Creates a listener calling a handler method through a direct {@code invoker}, without reflection. Used by
+   * generated {@link SubscriberIndex} classes.
+   *
+   * @param eventClass class of the events listened to, the handler parameter type.
+   * @param eventName name of the events listened to.
+   * @param target object sporting the handler method.
+   * @param owner class declaring the handler method.
+   * @param methodName name of the handler method.
+   * @param invoker calls the handler method on {@code target}.
+   */
+  public EventListener(Class<?> eventClass, String eventName, Object target, Class<?> owner, String methodName,
+                       EventInvoker invoker) {
+    this(eventClass, eventName, target, owner, methodName, invoker, 0);
+  }
+
+  /**
+   * Creates a listener calling a handler method through a direct {@code invoker}, without reflection. Used by
+   * generated {@link SubscriberIndex} classes.
+   *
+   * @param eventClass class of the events listened to, the handler parameter type.
+   * @param eventName name of the events listened to.
+   * @param target object sporting the handler method.
+   * @param owner class declaring the handler method.
+   * @param methodName name of the handler method.
+   * @param invoker calls the handler method on {@code target}.
+   * @param priority delivery priority, higher first.
+   */
+  public EventListener(Class<?> eventClass, String eventName, Object target, Class<?> owner, String methodName,
+                       EventInvoker invoker, int priority) {
+    this(eventClass, eventName, target, owner, methodName, invoker, null, priority);
+  }
+
+  /**
+   * Creates a listener calling a handler method through a direct {@code invoker}, without reflection, even once
+   * weakened. Used by generated {@link SubscriberIndex} classes.
+   *
+   * @param eventClass class of the events listened to, the handler parameter type.
+   * @param eventName name of the events listened to.
+   * @param target object sporting the handler method.
+   * @param owner class declaring the handler method.
+   * @param methodName name of the handler method.
+   * @param invoker calls the handler method on the target it is given.
+   * @param priority delivery priority, higher first.
+   */
+  public EventListener(Class<?> eventClass, String eventName, Object target, Class<?> owner, String methodName,
+                       TargetEventInvoker invoker, int priority) {
+    this(eventClass, eventName, target, owner, methodName, new EventInvokers.BoundInvoker(target, invoker), invoker,
+            priority);
+  }
+
+  private EventListener(Class<?> eventClass, String eventName, Object target, Class<?> owner, String methodName,
+                        EventInvoker invoker, TargetEventInvoker unbound, int priority) {
+    if (target == null) {
+      throw new NullPointerException("EventHandler target cannot be null.");
+    }
+
+    this._listeningEvent = null;
+    this._eventClass = eventClass;
+    this._eventName = eventName;
+    this._target = target;
+    this._targetRef = null;
+    this._batch = false;
+    this._owner = owner;
+    this._methodName = methodName;
+    this._invoker = invoker;
+    this._unbound = unbound;
+    this._priority = priority;
+    this._threadSafe = false;
+    _hashCode = hashCode(_owner, _methodName, _target);
+  }
+
+  /**
+   * Creates a listener handing events named like {@code event} to {@code handler}, every group of a
+   * {@link EventDispatcher#dispatchEvents(java.util.Collection)} batch in a single call.
+   *
+   * @param event event whose class and name are listened to.
+   * @param handler handler of the events.
+   */
+  public EventListener(IBaseEvent event, BatchEventHandler<?> handler) {
+    if (handler == null) {
+      throw new NullPointerException("EventHandler target cannot be null.");
+    }
+    if (event == null) {
+      throw new NullPointerException("EventHandler event cannot be null.");
+    }
+
+    this._listeningEvent = event;
+    this._eventClass = event.getClass();
+    this._eventName = event.getName();
+    this._target = handler;
+    this._targetRef = null;
+    this._batch = true;
+    this._priority = 0;
+    this._threadSafe = false;
+    this._method = BatchInvoker.HANDLE_EVENTS;
+    this._owner = handler.getClass();
+    this._methodName = BatchInvoker.HANDLE_EVENTS.getName();
+    this._invoker = new BatchInvoker(handler);
+    this._unbound = null;
+    _hashCode = hashCode(_owner, _methodName, handler);
+  }
+
+  /**
+   * Copies {@code strong} into a listener only weakly holding its target, enqueued on {@code queue} once the target
+   * has been collected. Only the class and name of the event are kept, as events usually hold the target themselves.
+   */
+  private EventListener(EventListener strong, ReferenceQueue<Object> queue) {
+    this._listeningEvent = null;
+    this._eventClass = strong._eventClass;
+    this._eventName = strong._eventName;
+    this._target = null;
+    this._targetRef = new TargetReference(strong.getTarget(), queue, this);
+    this._batch = strong._batch;
+    this._priority = strong._priority;
+    this._threadSafe = strong._threadSafe;
+    this._owner = strong._owner;
+    this._methodName = strong._methodName;
+    this._method = strong._method;
+    this._unbound = strong._unbound != null ? strong._unbound
+            : _batch ? BatchInvoker.UNBOUND : EventInvokers.factory(strong.getMethod()).unbound();
+    this._invoker = new EventInvokers.WeakInvoker(_targetRef, _unbound);
+    _hashCode = strong._hashCode;
+  }
+
+  /**
+   * Copy of this listener that does not keep its target reachable, or this listener when already weak.
+   *
+   * @param queue where the reference to the target is enqueued once the target has been collected.
+   */
+  EventListener weaken(ReferenceQueue<Object> queue) {
+    if (_targetRef != null) {
+      return this;
+    }
+    return new EventListener(this, queue);
+  }
+
+  /**
+   * Copies {@code source} with another delivery priority and thread safety.
+   */
+  private EventListener(EventListener source, int priority, boolean threadSafe) {
+    this._listeningEvent = source._listeningEvent;
+    this._eventClass = source._eventClass;
+    this._eventName = source._eventName;
+    this._target = source._target;
+    this._targetRef = source._targetRef;
+    this._batch = source._batch;
+    this._priority = priority;
+    this._threadSafe = threadSafe;
+    this._owner = source._owner;
+    this._methodName = source._methodName;
+    this._method = source._method;
+    this._invoker = source._invoker;
+    this._unbound = source._unbound;
+    _hashCode = source._hashCode;
+  }
+
+  /**
+   * Copy of this listener delivered with {@code priority}, or this listener when it already has it. Must be called
+   * before {@link #weaken(ReferenceQueue)}, as the weak reference only tracks the listener it was created for.
+   */
+  EventListener withPriority(int priority) {
+    if (priority == _priority) {
+      return this;
+    }
+    return new EventListener(this, priority, _threadSafe);
+  }
+
+  /**
+   * Copy of this listener marked as safe to call concurrently with the other listeners of an event, or this listener
+   * when already marked. Such listeners may be fanned out over a pool, see
+   * {@link EventDispatcher#setFanOut(java.util.concurrent.ForkJoinPool, int)}. Must be called before the listener is
+   * added.
+   */
+  public EventListener threadSafe() {
+    if (_threadSafe) {
+      return this;
+    }
+    return new EventListener(this, _priority, true);
+  }
+
+  /**
+   * Whether the handler may run concurrently with other listeners of the same event.
+   */
+  public boolean isThreadSafe() {
+    return _threadSafe;
+  }
+
+  /**
+   * Delivery priority, higher first. Listeners of equal priority are called in registration order.
+   */
+  public int getPriority() {
+    return _priority;
+  }
+
+  /**
+   * Whether this listener only weakly holds its target.
+   */
+  public boolean isWeak() {
+    return _targetRef != null;
+  }
+
+  /**
+   * Compute hash code eagerly since we know it will be used frequently and we cannot estimate the runtime of the
+   * target's hashCode call. Same value whether the method was reflected or not.
+   */
+  private static int hashCode(Class<?> owner, String methodName, Object target) {
+    final int prime = 31;
+    int methodHash = owner.getName().hashCode() ^ methodName.hashCode();
+    return (prime + methodHash) * prime + target.hashCode();
+  }
+
   public boolean isValid() {
     return _valid;
   }
@@ -109,19 +373,58 @@ public class EventListener {
       throw new IllegalStateException(toString() + " has been invalidated and can no longer handle events.");
     }
     try {
-        _method.invoke(_target, event);
-    } catch (IllegalAccessException e) {
-      throw new AssertionError(e);
-    } catch (InvocationTargetException e) {
-      if (e.getCause() instanceof Error) {
-        throw (Error) e.getCause();
+        _invoker.invoke(event);
+    } catch (Error e) {
+      throw e;
+    } catch (Throwable e) {
+      throw new InvocationTargetException(e);
+    }
+  }
+
+  /**
+   * Invokes the wrapped handler with every event of {@code events}, all sharing the class and name listened to. A
+   * {@link BatchEventHandler} receives them in a single call, a handler method once per event.
+   *
+   * @param events events to handle, in dispatch order.
+   * @throws java.lang.IllegalStateException  if previously invalidated.
+   * @throws java.lang.reflect.InvocationTargetException  if the handler throws any {@link Throwable} that is not
+   *     an {@link Error}; handler methods do not see the events after a failing one.
+   */
+  @SuppressWarnings("unchecked")
+  public void handleEvents(List<? extends IBaseEvent> events) throws InvocationTargetException {
+    if (!_batch) {
+      for (int i = 0, size = events.size(); i < size; i++) {
+        handleEvent(events.get(i));
       }
+      return;
+    }
+
+    if (!_valid) {
+      throw new IllegalStateException(toString() + " has been invalidated and can no longer handle events.");
+    }
+    BatchEventHandler<IBaseEvent> handler = (BatchEventHandler<IBaseEvent>) getTarget();
+    if (handler == null) {
+      // weakly held handler has been collected
+      return;
+    }
+    try {
+      handler.handleEvents((List<IBaseEvent>) events);
+    } catch (Error e) {
       throw e;
+    } catch (Throwable e) {
+      throw new InvocationTargetException(e);
     }
   }
 
+  /**
+   * Whether the wrapped handler is a {@link BatchEventHandler}.
+   */
+  public boolean isBatch() {
+    return _batch;
+  }
+
   @Override public String toString() {
-    return "[EventHandler " + _method + "]";
+    return "[EventHandler " + _owner.getName() + "." + _methodName + "(" + _eventClass.getName() + ")]";
   }
 
   @Override public int hashCode() {
@@ -143,18 +446,93 @@ public class EventListener {
 
     final EventListener other = (EventListener) obj;
 
-    return _method.equals(other.getMethod()) && _target == other.getTarget();
+    return getTarget() == other.getTarget() && _owner == other._owner && _eventClass == other._eventClass
+            && _methodName.equals(other._methodName);
   }
 
+    /**
+     * Object sporting the handler method, null once a weakly held target has been collected.
+     */
     public Object getTarget() {
-        return _target;
+        return _targetRef != null ? _targetRef.get() : _target;
     }
 
+    /**
+     * Handler method, looked up by reflection on first call for listeners of a generated {@link SubscriberIndex}.
+     */
     public Method getMethod() {
-        return _method;
+        Method method = _method;
+        if (method == null) {
+            try {
+                method = _owner.getDeclaredMethod(_methodName, _eventClass);
+                method.setAccessible(true);
+            } catch (NoSuchMethodException e) {
+                throw new IllegalStateException("Handler " + this + " does not exist.", e);
+            }
+            _method = method;
+        }
+        return method;
+    }
+
+    public EventInvoker getInvoker() {
+        return _invoker;
     }
 
+    /**
+     * Event given when created, null for listeners created by {@link EventDispatcher#register(Object)} and for weak
+     * listeners.
+     */
     public IBaseEvent getEvent() {
         return _listeningEvent;
     }
+
+    public Class<?> getEventClass() {
+        return _eventClass;
+    }
+
+    public String getEventName() {
+        return _eventName;
+    }
+
+    /** Weak reference to a listener target, remembering the listener to purge once enqueued. */
+    static final class TargetReference extends WeakReference<Object> {
+        final EventListener listener;
+
+        TargetReference(Object target, ReferenceQueue<Object> queue, EventListener listener) {
+            super(target, queue);
+            this.listener = listener;
+        }
+    }
+
+    /** Hands single events to a {@link BatchEventHandler} as batches of one. */
+    static final class BatchInvoker implements EventInvoker {
+        static final Method HANDLE_EVENTS;
+
+        static {
+            try {
+                HANDLE_EVENTS = BatchEventHandler.class.getMethod("handleEvents", List.class);
+            } catch (NoSuchMethodException e) {
+                throw new AssertionError(e);
+            }
+        }
+
+        static final TargetEventInvoker UNBOUND = new TargetEventInvoker() {
+            //@Override
+            @SuppressWarnings("unchecked")
+            public void invoke(Object target, Object event) throws Throwable {
+                ((BatchEventHandler<IBaseEvent>) target).handleEvents(Collections.singletonList((IBaseEvent) event));
+            }
+        };
+
+        private final BatchEventHandler<?> _handler;
+
+        BatchInvoker(BatchEventHandler<?> handler) {
+            _handler = handler;
+        }
+
+        //@Override
+        public void invoke(Object event) throws Throwable {
+            UNBOUND.invoke(_handler, event);
+        }
+    }
 }
@@ -0,0 +1,360 @@
+/*
+ * Copyright (C) 2015 Fantom Digital Pty. Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package au.com.fantomdigital.fantomeventj;
+
+import java.util.Collection;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.locks.LockSupport;
+
+/*
+ * EventLoopDispatcher: An event dispatcher shared by any number of threads, delivering every
+ * event on a single consumer thread.
+ *
+ * <p>Dispatching from any thread only looks the listeners up and appends the event to a lock-free
+ * multiple producer, single consumer queue, waking the consumer if it sleeps. The consumer is either
+ * the thread created by {@link #start()} or an existing loop calling {@link #drain()}, never both.</p>
+ *
+ * <p>All deliveries, including those of events dispatched by handlers, run on the consumer in
+ * dispatch order, so the per thread queues of {@link EventDispatcher} are never used and nothing is
+ * left behind on producer threads, sticky events replayed to new listeners included. Queue
+ * capacity and conflation settings do not apply.</p>
+ *
+ * Project: fantomeventj
+ *
+ * @author sfdi
+ * @date 17/10/26
+ */
+public class EventLoopDispatcher extends EventDispatcher {
+
+    private final ThreadFactory _threadFactory;
+
+    /** Last node appended, producers swap themselves in. */
+    private final AtomicReference<Node> _tail;
+    /** Last node taken, consumer only. Its successor is the next event. */
+    private Node _head;
+
+    /** The consumer, captured by {@link #start()} or the first {@link #drain()}. */
+    private volatile Thread _consumer;
+    /** Thread created by {@link #start()}, null when drained by another loop. */
+    private Thread _loop;
+    /** Whether the consumer is about to park or parked, so producers have to wake it. */
+    private volatile boolean _parked;
+    private volatile boolean _running;
+
+    /**
+     * Creates a new EventLoopDispatcher accepting events from any thread. Call {@link #start()} to deliver them.
+     */
+    public EventLoopDispatcher(Object target) {
+        this(DispatchExecutors.daemonThreads("fantomeventj-loop"), LooperBinder.ANY, DEFAULT_IDENTIFIER, target);
+    }
+
+    /**
+     * Creates a new EventLoopDispatcher.
+     *
+     * @param threadFactory creates the consumer thread of {@link #start()}.
+     * @param binder Looper Binder for register, unregister, and post actions.
+     * @param id A brief name for this satellite, for debug needs. Should be a valid Java id.
+     */
+    public EventLoopDispatcher(ThreadFactory threadFactory, LooperBinder binder, String id, Object target) {
+        super(binder, id, target);
+
+        if (threadFactory == null) {
+            throw new NullPointerException("Event loop thread factory cannot be null.");
+        }
+        _threadFactory = threadFactory;
+
+        Node stub = new Node(null, null);
+        _tail = new AtomicReference<Node>(stub);
+        _head = stub;
+    }
+
+    /**
+     * Starts the consumer thread.
+     *
+     * @throws IllegalStateException if already started or drained by another loop.
+     */
+    public synchronized void start() {
+        if (_consumer != null) {
+            throw new IllegalStateException("Event satellite " + this + " already has consumer " + _consumer);
+        }
+
+        _running = true;
+        Thread consumer = _threadFactory.newThread(new Runnable() {
+            //@Override
+            public void run() {
+                loop();
+            }
+        });
+        _consumer = consumer;
+        _loop = consumer;
+        consumer.start();
+    }
+
+    /**
+     * Stops the consumer thread once it has delivered everything dispatched so far, and waits for it.
+     */
+    public synchronized void halt() throws InterruptedException {
+        _running = false;
+        Thread loop = _loop;
+        if (loop == null) {
+            return;
+        }
+        LockSupport.unpark(loop);
+        if (loop != Thread.currentThread()) {
+            loop.join();
+        }
+    }
+
+    /**
+     * Delivers every pending event on the calling thread, for applications running their own loop instead of
+     * {@link #start()}. The first thread calling it becomes the consumer.
+     *
+     * @return number of events delivered.
+     * @throws IllegalStateException if called from another thread than the consumer.
+     */
+    public int drain() {
+        Thread consumer = _consumer;
+        if (consumer != Thread.currentThread()) {
+            synchronized (this) {
+                if (_consumer == null) {
+                    _consumer = Thread.currentThread();
+                } else if (_consumer != Thread.currentThread()) {
+                    throw new IllegalStateException("Event satellite " + this + " is drained by " + _consumer);
+                }
+            }
+        }
+
+        int delivered = 0;
+        Node next;
+        while ((next = _head.next) != null) {
+            deliver(next);
+            delivered++;
+        }
+        return delivered;
+    }
+
+    /**
+     * Waits until everything dispatched so far has been delivered, or the timeout elapses.
+     *
+     * @return true if caught up, false if the timeout elapsed first.
+     */
+    public boolean awaitQuiescence(long timeout, TimeUnit unit) throws InterruptedException {
+        long deadline = System.nanoTime() + unit.toNanos(timeout);
+        Node published = _tail.get();
+
+        int counter = 0;
+        // the consumer is single, once the last node dispatched so far is delivered so is every earlier one
+        while (published.listeners != null) {
+            if (Thread.interrupted()) {
+                throw new InterruptedException();
+            }
+            if (System.nanoTime() - deadline >= 0) {
+                return false;
+            }
+            counter = WaitStrategy.PARK.idle(counter);
+        }
+        return true;
+    }
+
+    /**
+     * Appends {@code event} with its current listeners to the queue. Safe from any thread, including handlers.
+     */
+    @Override public void dispatchEvent(IBaseEvent event) {
+        if (event == null) {
+            throw new NullPointerException("Event to dispatchEvent must not be null.");
+        }
+        bindLooper();
+
+        DispatchMetrics metrics = getMetrics();
+        if (metrics != null) {
+            metrics.recordDispatch(event);
+        }
+
+        ListenerSnapshot listeners = getEventListeners(event);
+        DispatchTracer tracer = getTracer();
+        if (tracer == null) {
+            append(event, listeners);
+            return;
+        }
+
+        tracer.dispatchBegin(this, event, tracedEvent());
+        try {
+            // before appending, the consumer may handle the event right away
+            for (int i = 0; i < listeners.size(); i++) {
+                traceEnqueued(event, listeners.get(i));
+            }
+            append(event, listeners);
+        } finally {
+            tracer.dispatchEnd(this, event);
+        }
+    }
+
+    /**
+     * Appends every event of {@code events} in order.
+     */
+    @Override public void dispatchEvents(Collection<? extends IBaseEvent> events) {
+        for (IBaseEvent event : events) {
+            dispatchEvent(event);
+        }
+    }
+
+    /**
+     * Appends {@code event} with the current capture listeners, so a descendant propagating it never runs them on
+     * its own thread.
+     */
+    @Override protected void dispatchCaptureEvent(IBaseEvent event) {
+        bindLooper();
+
+        ListenerSnapshot listeners = getCaptureListeners(event);
+        for (int i = 0; i < listeners.size(); i++) {
+            traceEnqueued(event, listeners.get(i));
+        }
+        append(event, listeners);
+    }
+
+    /**
+     * Appends the sticky {@code event} for {@code listener} alone, so it is delivered on the consumer in order.
+     */
+    @Override protected void replayStickyEvent(IBaseEvent event, EventListener listener) {
+        traceEnqueued(event, listener);
+        append(event, ListenerSnapshot.of(listener));
+    }
+
+    /**
+     * Called on the consumer when a handler throws. Hands the failure to the uncaught exception handler of that
+     * thread by default.
+     *
+     * @param event event that was being delivered.
+     * @param listener listener that failed.
+     * @param e the failure, as reported by {@link EventDispatcher#process(IBaseEvent, EventListener)}.
+     */
+    protected void onDeliveryFailure(IBaseEvent event, EventListener listener, RuntimeException e) {
+        Thread thread = Thread.currentThread();
+        Thread.UncaughtExceptionHandler handler = thread.getUncaughtExceptionHandler();
+        if (handler != null) {
+            handler.uncaughtException(thread, e);
+        }
+    }
+
+    /**
+     * Halts the consumer and clears the satellite.
+     */
+    @Override public void destroy() {
+        try {
+            halt();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+
+        super.destroy();
+    }
+
+    @Override public String toString() {
+        return "[EventLoopSatellite " + super.toString() + "]";
+    }
+
+    private void append(IBaseEvent event, ListenerSnapshot listeners) {
+        if (listeners.size() == 0) {
+            return;
+        }
+
+        Node node = new Node(event, listeners);
+        Node previous = _tail.getAndSet(node);
+        // the consumer stops at previous until this link is made, it will not skip the node
+        previous.next = node;
+
+        if (_parked) {
+            Thread consumer = _consumer;
+            if (consumer != null) {
+                LockSupport.unpark(consumer);
+            }
+        }
+    }
+
+    /**
+     * Consumer thread started by {@link #start()}.
+     */
+    private void loop() {
+        while (true) {
+            Node next = _head.next;
+            if (next != null) {
+                deliver(next);
+                continue;
+            }
+
+            if (!_running) {
+                // a producer may still be linking its node
+                if (_tail.get() == _head) {
+                    return;
+                }
+                Thread.yield();
+                continue;
+            }
+
+            _parked = true;
+            if (_head.next == null && _running) {
+                LockSupport.park(this);
+            }
+            _parked = false;
+        }
+    }
+
+    /**
+     * Takes {@code node}, the successor of the head, and delivers its event. Handler failures, errors included, are
+     * reported so the consumer keeps running.
+     */
+    private void deliver(Node node) {
+        _head = node;
+        IBaseEvent event = node.event;
+        ListenerSnapshot listeners = node.listeners;
+
+        try {
+            for (int i = 0; i < listeners.size(); i++) {
+                EventListener listener = listeners.get(i);
+                if (listener.isValid() && !isPropagationStopped(event)) {
+                    try {
+                        process(event, listener);
+                    } catch (RuntimeException e) {
+                        onDeliveryFailure(event, listener, e);
+                    } catch (Throwable e) {
+                        onDeliveryFailure(event, listener, new RuntimeException("Could not dispatch event: "
+                                + event.getClass() + " to listener " + listener + ": " + e, e));
+                    }
+                }
+            }
+        } finally {
+            // marks the node delivered and lets the event go, the node stays as the head
+            node.event = null;
+            node.listeners = null;
+        }
+    }
+
+    /** One dispatched event with the listeners it had. */
+    private static final class Node {
+        IBaseEvent event;
+        /** Null once delivered. */
+        volatile ListenerSnapshot listeners;
+        volatile Node next;
+
+        Node(IBaseEvent event, ListenerSnapshot listeners) {
+            this.event = event;
+            this.listeners = listeners;
+        }
+    }
+}
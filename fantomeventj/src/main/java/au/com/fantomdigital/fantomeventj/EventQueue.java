@@ -0,0 +1,267 @@
+/*
+ * Copyright (C) 2015 Fantom Digital Pty. Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package au.com.fantomdigital.fantomeventj;
+
+import java.util.Arrays;
+
+/**
+ * EventQueue: Single thread FIFO of event and listener pairs backed by a growable ring buffer.
+ *
+ * <p>Pairs are stored in parallel arrays whose slots are reused, so queueing allocates nothing once the buffer
+ * has grown to the deepest re-entrant dispatch seen. Also carries the processing flag of its thread.</p>
+ *
+ * <p>Replaceable pairs are indexed by listener and conflation key in an open addressed table of their sequence
+ * numbers, so {@link #replace(IBaseEvent, EventListener, Object)} does not scan the queue.</p>
+ *
+ * <p>Not thread safe, each dispatching thread owns its own queue.</p>
+ *
+ * Project: fantomeventj
+ *
+ * @author sfdi
+ * @date 17/10/26
+ */
+final class EventQueue {
+    private static final int INITIAL_CAPACITY = 16;
+    /** Free cell of {@link #_index}. */
+    private static final long EMPTY = Long.MIN_VALUE;
+
+    private IBaseEvent[] _events = new IBaseEvent[INITIAL_CAPACITY];
+    private EventListener[] _listeners = new EventListener[INITIAL_CAPACITY];
+    /** Conflation key of each pair, null when it can not be replaced. */
+    private Object[] _keys = new Object[INITIAL_CAPACITY];
+    /** Index of the oldest pair. */
+    private int _head;
+    /** Number of queued pairs. */
+    private int _size;
+    /** Sequence number of the oldest pair, each later pair has the next one. */
+    private long _headSequence;
+    /** Sequence numbers of the pairs with a conflation key, linearly probed by {@link #hash(int)}. */
+    private long[] _index = emptyIndex(INITIAL_CAPACITY);
+    /** Number of used cells of {@link #_index}. */
+    private int _indexed;
+
+    /** Whether the owning thread is currently draining this queue. */
+    boolean processing;
+
+    boolean isEmpty() {
+        return _size == 0;
+    }
+
+    int size() {
+        return _size;
+    }
+
+    /**
+     * Appends a pair at the tail.
+     */
+    void offer(IBaseEvent event, EventListener listener) {
+        if (_size == _events.length) {
+            grow();
+        }
+
+        int tail = (_head + _size) & (_events.length - 1);
+        _events[tail] = event;
+        _listeners[tail] = listener;
+        _size++;
+    }
+
+    /**
+     * Puts a pair back at the head, ahead of every queued pair.
+     */
+    void offerFirst(IBaseEvent event, EventListener listener) {
+        if (_size == _events.length) {
+            grow();
+        }
+
+        _head = (_head - 1) & (_events.length - 1);
+        _headSequence--;
+        _events[_head] = event;
+        _listeners[_head] = listener;
+        _keys[_head] = null;
+        _size++;
+    }
+
+    /**
+     * Appends a pair at the tail, replaceable by {@link #replace(IBaseEvent, EventListener, Object)}.
+     *
+     * @param key conflation key of {@code event}, null when it can not be replaced.
+     */
+    void offer(IBaseEvent event, EventListener listener, Object key) {
+        offer(event, listener);
+        if (key != null) {
+            _keys[(_head + _size - 1) & (_events.length - 1)] = key;
+            index(_headSequence + _size - 1);
+        }
+    }
+
+    /**
+     * Replaces the event of the pending pair of {@code listener} with key {@code key}.
+     *
+     * @param key conflation key of {@code event}, {@link ConflationKey#CLASS_AND_NAME} itself to match pending
+     *            events of the same class and name.
+     * @return true if a pending event was replaced.
+     */
+    boolean replace(IBaseEvent event, EventListener listener, Object key) {
+        int mask = _index.length - 1;
+        for (int i = hash(event, listener, key) & mask; _index[i] != EMPTY; i = (i + 1) & mask) {
+            int slot = slotOf(_index[i]);
+            if (_listeners[slot] == listener && sameKey(_events[slot], _keys[slot], event, key)) {
+                _events[slot] = event;
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Event of the oldest pair, to be read before {@link #poll()}.
+     */
+    IBaseEvent peekEvent() {
+        return _events[_head];
+    }
+
+    /**
+     * Removes the oldest pair, clearing its slot so the event can be collected.
+     *
+     * @return listener of the removed pair.
+     */
+    EventListener poll() {
+        if (_keys[_head] != null) {
+            unindex(_headSequence);
+        }
+        EventListener listener = _listeners[_head];
+        _events[_head] = null;
+        _listeners[_head] = null;
+        _keys[_head] = null;
+        _head = (_head + 1) & (_events.length - 1);
+        _headSequence++;
+        _size--;
+        return listener;
+    }
+
+    /**
+     * Drops every queued pair.
+     */
+    void clear() {
+        while (_size > 0) {
+            poll();
+        }
+        _head = 0;
+    }
+
+    private void grow() {
+        int capacity = _events.length;
+        IBaseEvent[] events = new IBaseEvent[capacity << 1];
+        EventListener[] listeners = new EventListener[capacity << 1];
+        Object[] keys = new Object[capacity << 1];
+
+        // unwrap so the oldest pair lands at index 0
+        int firstRun = capacity - _head;
+        System.arraycopy(_events, _head, events, 0, firstRun);
+        System.arraycopy(_events, 0, events, firstRun, _head);
+        System.arraycopy(_listeners, _head, listeners, 0, firstRun);
+        System.arraycopy(_listeners, 0, listeners, firstRun, _head);
+        System.arraycopy(_keys, _head, keys, 0, firstRun);
+        System.arraycopy(_keys, 0, keys, firstRun, _head);
+
+        _events = events;
+        _listeners = listeners;
+        _keys = keys;
+        _head = 0;
+    }
+
+    private int slotOf(long sequence) {
+        return (int) (_head + (sequence - _headSequence)) & (_events.length - 1);
+    }
+
+    private void index(long sequence) {
+        if ((_indexed + 1) << 1 > _index.length) {
+            long[] index = _index;
+            _index = emptyIndex(index.length << 1);
+            for (long queued : index) {
+                if (queued != EMPTY) {
+                    insert(queued);
+                }
+            }
+        }
+        insert(sequence);
+        _indexed++;
+    }
+
+    private void insert(long sequence) {
+        int mask = _index.length - 1;
+        int i = hash(slotOf(sequence)) & mask;
+        while (_index[i] != EMPTY) {
+            i = (i + 1) & mask;
+        }
+        _index[i] = sequence;
+    }
+
+    /**
+     * Removes {@code sequence} from the index, shifting back the cells probed past it.
+     */
+    private void unindex(long sequence) {
+        int mask = _index.length - 1;
+        int i = hash(slotOf(sequence)) & mask;
+        while (_index[i] != sequence) {
+            i = (i + 1) & mask;
+        }
+
+        for (int j = (i + 1) & mask; _index[j] != EMPTY; j = (j + 1) & mask) {
+            int home = hash(slotOf(_index[j])) & mask;
+            // a cell may only move back to a free cell between its home and itself
+            if (i <= j ? home <= i || home > j : home <= i && home > j) {
+                _index[i] = _index[j];
+                i = j;
+            }
+        }
+        _index[i] = EMPTY;
+        _indexed--;
+    }
+
+    private int hash(int slot) {
+        return hash(_events[slot], _listeners[slot], _keys[slot]);
+    }
+
+    private static int hash(IBaseEvent event, EventListener listener, Object key) {
+        int hash = System.identityHashCode(listener) * 31;
+        if (key == ConflationKey.CLASS_AND_NAME) {
+            String name = event.getName();
+            hash += event.getClass().hashCode() * 31 + (name != null ? name.hashCode() : 0);
+        } else {
+            hash += key.hashCode();
+        }
+        return hash ^ (hash >>> 16);
+    }
+
+    private static boolean sameKey(IBaseEvent queuedEvent, Object queuedKey, IBaseEvent event, Object key) {
+        if (key == ConflationKey.CLASS_AND_NAME) {
+            if (queuedKey != key || queuedEvent.getClass() != event.getClass()) {
+                return false;
+            }
+            String name = event.getName();
+            return name != null ? name.equals(queuedEvent.getName()) : queuedEvent.getName() == null;
+        }
+        return key.equals(queuedKey);
+    }
+
+    private static long[] emptyIndex(int capacity) {
+        long[] index = new long[capacity];
+        Arrays.fill(index, EMPTY);
+        return index;
+    }
+}
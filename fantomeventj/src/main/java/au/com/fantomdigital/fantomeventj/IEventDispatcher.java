@@ -16,6 +16,8 @@
 
 package au.com.fantomdigital.fantomeventj;
 
+import java.util.Collection;
+
 /*
  * Project: fantomeventj
  * @author sfdi
@@ -28,4 +30,5 @@ public interface IEventDispatcher {
     void removeAllEventListener();
     void dispatchEvent(IBaseEvent event, Object sourceTarget);
     void dispatchEvent(IBaseEvent event);
+    void dispatchEvents(Collection<? extends IBaseEvent> events);
 }
@@ -0,0 +1,195 @@
+/*
+ * Copyright (C) 2015 Fantom Digital Pty. Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package au.com.fantomdigital.fantomeventj;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * ListenerBucket: All listeners registered for one event class and event name.
+ *
+ * <p>Members are indexed by their precomputed hash, so finding a listener is O(1) under the bucket lock. Readers get
+ * an immutable {@link ListenerSnapshot} through a volatile read, never locking, sorted by descending
+ * {@link EventListener#getPriority()}, registration order within a priority, so delivery never sorts.</p>
+ *
+ * <p>Writers keep the snapshot current. Listeners live in a growable array with spare capacity; a snapshot is a view
+ * of its used slots, so adding a listener of the same or a lower priority than the last one writes the next free
+ * slot and publishes a new view, amortised O(1). The array is only reallocated, without tombstones, when it is full
+ * or when a listener has to go before listeners already published. Removed listeners are invalidated and stay in
+ * the array as tombstones, skipped at delivery, until they outnumber the live ones, so removal costs amortised
+ * O(1).</p>
+ *
+ * Project: fantomeventj
+ *
+ * @author sfdi
+ * @date 17/10/26
+ */
+final class ListenerBucket {
+    private static final EventListener[] NO_SLOTS = new EventListener[0];
+
+    /** Smallest array allocated for listeners. */
+    private static final int MIN_CAPACITY = 4;
+
+    /** Registered listeners in registration order, keyed by themselves for equivalence lookups. */
+    private final Map<EventListener, EventListener> _members = new LinkedHashMap<EventListener, EventListener>();
+
+    /**
+     * Listeners in delivery order, tombstones included, then free slots. Slots below {@link #_used} are part of
+     * published snapshots and never written again.
+     */
+    private EventListener[] _slots = NO_SLOTS;
+
+    /** Slots of {@link #_slots} in use. */
+    private int _used;
+
+    /** Delivery snapshot, a view of the used slots. May hold invalidated listeners. */
+    private volatile ListenerSnapshot _snapshot = ListenerSnapshot.EMPTY;
+
+    /** Number of live listeners. */
+    private volatile int _size;
+
+    /** Removed listeners still in {@link #_slots}. */
+    private int _tombstones;
+
+    /**
+     * Snapshot of the listeners in delivery order, possibly with invalidated ones that callers must skip.
+     *
+     * @return listeners of this bucket.
+     */
+    ListenerSnapshot snapshot() {
+        return _snapshot;
+    }
+
+    int size() {
+        return _size;
+    }
+
+    /**
+     * Adds {@code listener} after every listener of the same or a higher priority, unless an equivalent one is
+     * already registered.
+     *
+     * @param listener listener to add.
+     * @return true if added.
+     */
+    synchronized boolean add(EventListener listener) {
+        if (_members.containsKey(listener)) {
+            return false;
+        }
+
+        _members.put(listener, listener);
+        _size = _members.size();
+
+        if (_used > 0 && _slots[_used - 1].getPriority() < listener.getPriority()) {
+            // goes before published slots, which can not move
+            compact(listener);
+        } else {
+            if (_used == _slots.length) {
+                compact(null);
+            }
+            _slots[_used++] = listener;
+        }
+        _snapshot = new ListenerSnapshot(_slots, _used);
+        return true;
+    }
+
+    /**
+     * Removes and invalidates the listener equivalent to {@code listener}.
+     *
+     * @param listener listener to remove.
+     * @return the registered instance that was removed, or null if none matched.
+     */
+    synchronized EventListener remove(EventListener listener) {
+        EventListener removed = _members.remove(listener);
+        if (removed != null) {
+            removed(removed);
+        }
+        return removed;
+    }
+
+    /**
+     * Removes and invalidates {@code listener} itself, even if another registered listener is equivalent.
+     *
+     * @param listener listener to remove.
+     * @return true if it was registered.
+     */
+    synchronized boolean removeIdentical(EventListener listener) {
+        if (_members.get(listener) != listener) {
+            return false;
+        }
+
+        _members.remove(listener);
+        removed(listener);
+        return true;
+    }
+
+    /**
+     * Removes every listener.
+     *
+     * @return the listeners that were registered.
+     */
+    synchronized EventListener[] clear() {
+        EventListener[] current = _members.values().toArray(new EventListener[_members.size()]);
+        _members.clear();
+        _size = 0;
+        _tombstones = 0;
+        // published snapshots keep the old array
+        _slots = NO_SLOTS;
+        _used = 0;
+        _snapshot = ListenerSnapshot.EMPTY;
+        return current;
+    }
+
+    private void removed(EventListener listener) {
+        // invalid before anyone can see it missing, so the snapshot may keep it as a tombstone
+        listener.invalidate();
+        _size = _members.size();
+
+        if (++_tombstones > _size) {
+            compact(null);
+            _snapshot = _used == 0 ? ListenerSnapshot.EMPTY : new ListenerSnapshot(_slots, _used);
+        }
+    }
+
+    /**
+     * Moves the live listeners, already in delivery order, into a new array with room to grow, placing
+     * {@code inserted} if any after every listener of the same or a higher priority. Published snapshots keep the
+     * old array.
+     */
+    private void compact(EventListener inserted) {
+        EventListener[] next = _size == 0 ? NO_SLOTS : new EventListener[Math.max(MIN_CAPACITY, _size * 2)];
+        int count = 0;
+        for (int i = 0; i < _used; i++) {
+            EventListener member = _slots[i];
+            if (_members.get(member) != member) {
+                // tombstone
+                continue;
+            }
+            if (inserted != null && member.getPriority() < inserted.getPriority()) {
+                next[count++] = inserted;
+                inserted = null;
+            }
+            next[count++] = member;
+        }
+        if (inserted != null) {
+            next[count++] = inserted;
+        }
+
+        _slots = next;
+        _used = count;
+        _tombstones = 0;
+    }
+}
@@ -0,0 +1,291 @@
+/*
+ * Copyright (C) 2015 Fantom Digital Pty. Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package au.com.fantomdigital.fantomeventj;
+
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * ListenerRegistry: Event listeners indexed by event class, then by event name.
+ *
+ * <p>Looking up the listeners of an event is two hash probes and allocates nothing; the name probe relies on the
+ * hash code {@link String} caches, so names are never compared against every listener.</p>
+ *
+ * <p>For hierarchy dispatch the registry also caches, per event class, its flattened supertypes and, per class and
+ * name, the merged listeners of all those types. Merged snapshots are tagged with a registry version bumped on every
+ * change, so they are rebuilt lazily after an add or remove.</p>
+ *
+ * Project: fantomeventj
+ *
+ * @author sfdi
+ * @date 17/10/26
+ */
+final class ListenerRegistry {
+    /** Buckets indexed by event class then event name. */
+    private final ConcurrentMap<Class<?>, ConcurrentMap<String, ListenerBucket>> _buckets =
+            new ConcurrentHashMap<Class<?>, ConcurrentMap<String, ListenerBucket>>();
+
+    /** Event class, superclasses then interfaces, keeping only {@link IBaseEvent} types, per event class. */
+    private final ConcurrentMap<Class<?>, Class<?>[]> _hierarchies = new ConcurrentHashMap<Class<?>, Class<?>[]>();
+
+    /** Listeners of an event class and of its supertypes, indexed by event class then event name. */
+    private final ConcurrentMap<Class<?>, ConcurrentMap<String, MergedListeners>> _merged =
+            new ConcurrentHashMap<Class<?>, ConcurrentMap<String, MergedListeners>>();
+
+    /** Bumped after every change of the buckets. */
+    private final AtomicInteger _version = new AtomicInteger();
+
+    /**
+     * Registers {@code listener} for events of class {@code type} named {@code name}.
+     *
+     * @return true if added, false if an equivalent listener was already registered.
+     */
+    boolean add(Class<?> type, String name, EventListener listener) {
+        ConcurrentMap<String, ListenerBucket> names = _buckets.get(type);
+        if (names == null) {
+            // concurrent init map
+            ConcurrentMap<String, ListenerBucket> newNames = new ConcurrentHashMap<String, ListenerBucket>();
+            names = _buckets.putIfAbsent(type, newNames);
+            if (names == null) {
+                names = newNames;
+            }
+        }
+
+        ListenerBucket bucket = names.get(name);
+        if (bucket == null) {
+            ListenerBucket newBucket = new ListenerBucket();
+            bucket = names.putIfAbsent(name, newBucket);
+            if (bucket == null) {
+                bucket = newBucket;
+            }
+        }
+
+        if (bucket.add(listener)) {
+            _version.incrementAndGet();
+            return true;
+        }
+        return false;
+    }
+
+    /**
+     * Unregisters the listener equivalent to {@code listener} for events of class {@code type} named {@code name}.
+     *
+     * @return the removed instance, or null if none was registered.
+     */
+    EventListener remove(Class<?> type, String name, EventListener listener) {
+        ListenerBucket bucket = bucket(type, name);
+        EventListener removed = bucket != null ? bucket.remove(listener) : null;
+        if (removed != null) {
+            _version.incrementAndGet();
+        }
+        return removed;
+    }
+
+    /**
+     * Unregisters {@code listener} itself, ignoring equivalent instances, for events of class {@code type} named
+     * {@code name}.
+     *
+     * @return true if it was registered.
+     */
+    boolean removeIdentical(Class<?> type, String name, EventListener listener) {
+        ListenerBucket bucket = bucket(type, name);
+        if (bucket != null && bucket.removeIdentical(listener)) {
+            _version.incrementAndGet();
+            return true;
+        }
+        return false;
+    }
+
+    /**
+     * Listeners of events with class {@code type} and name {@code name}, in delivery order. May hold removed
+     * listeners, already invalidated.
+     *
+     * @return the listener snapshot, empty if none.
+     */
+    ListenerSnapshot get(Class<?> type, String name) {
+        ListenerBucket bucket = bucket(type, name);
+        return bucket != null ? bucket.snapshot() : ListenerSnapshot.EMPTY;
+    }
+
+    /**
+     * Listeners of events with name {@code name} registered for {@code type} or any of its supertypes and
+     * interfaces, most specific type first. May hold removed listeners, already invalidated.
+     *
+     * @return the merged listener snapshot, empty if none.
+     */
+    ListenerSnapshot getHierarchy(Class<?> type, String name) {
+        ConcurrentMap<String, MergedListeners> names = _merged.get(type);
+        if (names != null) {
+            MergedListeners merged = names.get(name);
+            if (merged != null && merged.version == _version.get()) {
+                return merged.listeners;
+            }
+        }
+
+        return merge(type, name);
+    }
+
+    /**
+     * Counts the listeners of every event name for the event class {@code type}.
+     */
+    int count(Class<?> type) {
+        ConcurrentMap<String, ListenerBucket> names = _buckets.get(type);
+        if (names == null) {
+            return 0;
+        }
+
+        int count = 0;
+        for (ListenerBucket bucket : names.values()) {
+            count += bucket.size();
+        }
+        return count;
+    }
+
+    /**
+     * Removes and invalidates every listener of the event class {@code type}.
+     */
+    void removeAll(Class<?> type) {
+        ConcurrentMap<String, ListenerBucket> names = _buckets.remove(type);
+        if (names != null) {
+            invalidate(names);
+            _version.incrementAndGet();
+        }
+    }
+
+    /**
+     * Removes and invalidates every listener.
+     */
+    void removeAll() {
+        for (Class<?> type : _buckets.keySet()) {
+            removeAll(type);
+        }
+    }
+
+    private ListenerSnapshot merge(Class<?> type, String name) {
+        // read the version first, a change while merging leaves a stale tag and the next lookup merges again
+        int version = _version.get();
+        Class<?>[] types = flatten(type);
+
+        ListenerSnapshot listeners = ListenerSnapshot.EMPTY;
+        for (Class<?> eventType : types) {
+            ListenerSnapshot found = get(eventType, name);
+            if (found.size() == 0) {
+                continue;
+            }
+
+            if (listeners.size() == 0) {
+                listeners = found;
+            } else {
+                listeners = mergeByPriority(listeners, found);
+            }
+        }
+
+        // names nobody listens to are not cached, so arbitrary event names can not grow the cache
+        if (listeners.size() > 0) {
+            ConcurrentMap<String, MergedListeners> names = _merged.get(type);
+            if (names == null) {
+                ConcurrentMap<String, MergedListeners> newNames = new ConcurrentHashMap<String, MergedListeners>();
+                names = _merged.putIfAbsent(type, newNames);
+                if (names == null) {
+                    names = newNames;
+                }
+            }
+            names.put(name, new MergedListeners(version, listeners));
+        }
+
+        return listeners;
+    }
+
+    /**
+     * Merges two snapshots sorted by descending priority, {@code first} winning ties so more specific types come first.
+     */
+    private static ListenerSnapshot mergeByPriority(ListenerSnapshot first, ListenerSnapshot second) {
+        EventListener[] merged = new EventListener[first.size() + second.size()];
+        int i = 0;
+        int j = 0;
+        for (int k = 0; k < merged.length; k++) {
+            if (j == second.size()
+                    || (i < first.size() && first.get(i).getPriority() >= second.get(j).getPriority())) {
+                merged[k] = first.get(i++);
+            } else {
+                merged[k] = second.get(j++);
+            }
+        }
+        return new ListenerSnapshot(merged, merged.length);
+    }
+
+    private Class<?>[] flatten(Class<?> type) {
+        Class<?>[] types = _hierarchies.get(type);
+        if (types != null) {
+            return types;
+        }
+
+        Set<Class<?>> flattened = new LinkedHashSet<Class<?>>();
+        for (Class<?> current = type; current != null; current = current.getSuperclass()) {
+            flattened.add(current);
+        }
+
+        List<Class<?>> pending = new ArrayList<Class<?>>(flattened);
+        for (int i = 0; i < pending.size(); i++) {
+            for (Class<?> implemented : pending.get(i).getInterfaces()) {
+                if (flattened.add(implemented)) {
+                    pending.add(implemented);
+                }
+            }
+        }
+
+        List<Class<?>> eventTypes = new ArrayList<Class<?>>();
+        for (Class<?> candidate : flattened) {
+            if (IBaseEvent.class.isAssignableFrom(candidate)) {
+                eventTypes.add(candidate);
+            }
+        }
+
+        types = eventTypes.toArray(new Class<?>[eventTypes.size()]);
+        _hierarchies.putIfAbsent(type, types);
+        return types;
+    }
+
+    private ListenerBucket bucket(Class<?> type, String name) {
+        ConcurrentMap<String, ListenerBucket> names = _buckets.get(type);
+        return names != null ? names.get(name) : null;
+    }
+
+    private static void invalidate(ConcurrentMap<String, ListenerBucket> names) {
+        for (ListenerBucket bucket : names.values()) {
+            for (EventListener removed : bucket.clear()) {
+                removed.invalidate();
+            }
+        }
+    }
+
+    /** Merged listener snapshot with the registry version it was built from. */
+    private static final class MergedListeners {
+        final int version;
+        final ListenerSnapshot listeners;
+
+        MergedListeners(int version, ListenerSnapshot listeners) {
+            this.version = version;
+            this.listeners = listeners;
+        }
+    }
+}
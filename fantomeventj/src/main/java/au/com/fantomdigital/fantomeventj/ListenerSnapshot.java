@@ -0,0 +1,62 @@
+/*
+ * Copyright (C) 2015 Fantom Digital Pty. Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package au.com.fantomdigital.fantomeventj;
+
+/**
+ * ListenerSnapshot: The listeners of an event at one point in time, in delivery order.
+ *
+ * <p>A snapshot is a view of the first {@link #size()} slots of an array its {@link ListenerBucket} keeps appending
+ * to, so adding a listener publishes a new view instead of copying every listener. Slots of a published view are
+ * never written again. Removed listeners may still be there, invalidated, and must be skipped.</p>
+ *
+ * Project: fantomeventj
+ *
+ * @author sfdi
+ * @date 17/10/26
+ */
+public final class ListenerSnapshot {
+    static final ListenerSnapshot EMPTY = new ListenerSnapshot(new EventListener[0], 0);
+
+    private final EventListener[] _listeners;
+    private final int _size;
+
+    ListenerSnapshot(EventListener[] listeners, int size) {
+        _listeners = listeners;
+        _size = size;
+    }
+
+    /**
+     * Snapshot of {@code listener} alone.
+     */
+    static ListenerSnapshot of(EventListener listener) {
+        return new ListenerSnapshot(new EventListener[] {listener}, 1);
+    }
+
+    /**
+     * Number of listeners, removed ones included.
+     */
+    public int size() {
+        return _size;
+    }
+
+    /**
+     * Listener at {@code index}, from 0 to {@link #size()} excluded.
+     */
+    public EventListener get(int index) {
+        return _listeners[index];
+    }
+}
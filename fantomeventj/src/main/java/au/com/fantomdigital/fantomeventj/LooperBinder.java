@@ -16,10 +16,12 @@
 
 package au.com.fantomdigital.fantomeventj;
 
-import android.os.Looper;
-
 /**
  * LooperBinder: Enforces a looper (thread) bind policy for methods on a particular event satellite.
+ *
+ * <p>Plain JVM binders are created by {@link LooperBinders}, Android looper binders live in the
+ * fantomeventj-android module.</p>
+ *
  * Project: fantomeventj
  *
  * @author sfdi
@@ -43,14 +45,4 @@ public interface LooperBinder {
     }
   };
 
-  /** A {@link LooperBinder} that confines {@link EventDispatcher} methods to the main looper. */
-  LooperBinder MAIN = new LooperBinder() {
-    //@Override
-    public void bind(EventDispatcher satellite) {
-      if (Looper.myLooper() != Looper.getMainLooper()) {
-        throw new IllegalStateException("Event satellite " + satellite + " accessed from main looper " + Looper.myLooper());
-      }
-    }
-  };
-
 }
@@ -0,0 +1,73 @@
+/*
+ * Copyright (C) 2015 Fantom Digital Pty. Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package au.com.fantomdigital.fantomeventj;
+
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+
+/**
+ * LooperBinders: {@link LooperBinder} factories for a plain JVM, with no Android dependency.
+ *
+ * Project: fantomeventj
+ *
+ * @author sfdi
+ * @date 17/10/26
+ */
+public final class LooperBinders {
+
+  private LooperBinders() {
+    // No instances.
+  }
+
+  /**
+   * Confines {@link EventDispatcher} methods to {@code thread}.
+   */
+  public static LooperBinder thread(Thread thread) {
+    return new ThreadLooperBinder(thread);
+  }
+
+  /**
+   * Confines {@link EventDispatcher} methods to the calling thread, like the main looper of an Android
+   * application when called from it.
+   */
+  public static LooperBinder currentThread() {
+    return new ThreadLooperBinder(Thread.currentThread());
+  }
+
+  /**
+   * Confines {@link EventDispatcher} methods to the thread of a single threaded {@code executor}, such as
+   * {@link DispatchExecutors#singleThread(String)}. Blocks until the executor reports its thread.
+   *
+   * @throws IllegalStateException if the executor could not run the probe task.
+   */
+  public static LooperBinder executorThread(ExecutorService executor) {
+    try {
+      return new ThreadLooperBinder(executor.submit(new Callable<Thread>() {
+        //@Override
+        public Thread call() {
+          return Thread.currentThread();
+        }
+      }).get());
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new IllegalStateException("Interrupted while waiting for the executor thread.", e);
+    } catch (ExecutionException e) {
+      throw new IllegalStateException("Executor could not report its thread.", e.getCause());
+    }
+  }
+}
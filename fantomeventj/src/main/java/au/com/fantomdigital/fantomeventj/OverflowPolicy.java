@@ -0,0 +1,42 @@
+/*
+ * Copyright (C) 2015 Fantom Digital Pty. Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package au.com.fantomdigital.fantomeventj;
+
+/**
+ * OverflowPolicy: What a bounded {@link EventDispatcher} queue does with an event arriving while it is full. See
+ * {@link EventDispatcher#setQueueCapacity(int, OverflowPolicy)}.
+ *
+ * Project: fantomeventj
+ *
+ * @author sfdi
+ * @date 17/10/26
+ */
+public enum OverflowPolicy {
+    /**
+     * The producer waits for room. Only {@link AsyncEventDispatcher} mailboxes can block, the re-entrant queue of a
+     * thread is drained by that same thread so it fails fast instead.
+     */
+    BLOCK,
+    /** The arriving event is dropped. */
+    DROP_NEWEST,
+    /** The oldest pending event is dropped to make room. */
+    DROP_OLDEST,
+    /** An {@link IllegalStateException} is thrown to the producer. */
+    FAIL_FAST,
+    /** {@link EventDispatcher#onQueueOverflow(IBaseEvent, EventListener)} decides, the event is not queued. */
+    CALL_HANDLER
+}
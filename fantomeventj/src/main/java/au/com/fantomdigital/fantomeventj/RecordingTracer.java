@@ -0,0 +1,259 @@
+/*
+ * Copyright (C) 2015 Fantom Digital Pty. Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package au.com.fantomdigital.fantomeventj;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * RecordingTracer: A {@link DispatchTracer} keeping every callback in memory, in call order, for tests and
+ * performance investigations.
+ *
+ * <p>Records are appended under a lock, so it is not meant for production traffic.</p>
+ *
+ * <p>Each dispatch gets its own id, so an event instance dispatched several times yields several dispatches. A
+ * dispatch names its parent dispatch by id, the one whose handler call was running on the dispatching thread. Queued
+ * deliveries and handler calls belong to the latest dispatch of their event on their dispatcher, as long as it is one
+ * of the last {@link #DEFAULT_CAPACITY} dispatches, or of the capacity given at construction; older ones get id 0.</p>
+ *
+ * Project: fantomeventj
+ *
+ * @author sfdi
+ * @date 17/10/26
+ */
+public class RecordingTracer implements DispatchTracer {
+
+    /** Kind of callback a {@link Record} stands for. */
+    public enum Kind {
+        DISPATCH_BEGIN,
+        DISPATCH_END,
+        ENQUEUED,
+        INVOKE_BEGIN,
+        INVOKE_END
+    }
+
+    /** Dispatches whose ids are kept by default for later callbacks of their event. */
+    public static final int DEFAULT_CAPACITY = 1024;
+
+    private final List<Record> _records = new ArrayList<Record>();
+
+    /** Last dispatch id. */
+    private long _lastId;
+
+    /** Id of the latest dispatch of each event on each dispatcher, the oldest evicted first once full. */
+    private final Map<DispatchKey, Long> _latest;
+
+    public RecordingTracer() {
+        this(DEFAULT_CAPACITY);
+    }
+
+    /**
+     * @param capacity most recent dispatches whose ids are kept for the later callbacks of their event.
+     */
+    public RecordingTracer(final int capacity) {
+        if (capacity <= 0) {
+            throw new IllegalArgumentException("Tracer capacity must be positive: " + capacity);
+        }
+
+        _latest = new LinkedHashMap<DispatchKey, Long>() {
+            private static final long serialVersionUID = 1L;
+
+            @Override protected boolean removeEldestEntry(Map.Entry<DispatchKey, Long> eldest) {
+                return size() > capacity;
+            }
+        };
+    }
+
+    /** Dispatch ids of the handler calls running on each thread, innermost last. */
+    private final ThreadLocal<List<Long>> _invoking = new ThreadLocal<List<Long>>() {
+        @Override protected List<Long> initialValue() {
+            return new ArrayList<Long>();
+        }
+    };
+
+    //@Override
+    public void dispatchBegin(EventDispatcher dispatcher, IBaseEvent event, IBaseEvent parent) {
+        List<Long> invoking = _invoking.get();
+        synchronized (this) {
+            long parentId = 0;
+            if (parent != null && !invoking.isEmpty()) {
+                parentId = invoking.get(invoking.size() - 1);
+            }
+
+            long id = ++_lastId;
+            DispatchKey key = new DispatchKey(dispatcher, event);
+            // a new dispatch of a reused event is the most recent one again
+            _latest.remove(key);
+            _latest.put(key, id);
+            _records.add(new Record(Kind.DISPATCH_BEGIN, dispatcher, event, null, parent, null, id, parentId));
+        }
+    }
+
+    //@Override
+    public void dispatchEnd(EventDispatcher dispatcher, IBaseEvent event) {
+        record(Kind.DISPATCH_END, dispatcher, event, null, null);
+    }
+
+    //@Override
+    public void enqueued(EventDispatcher dispatcher, IBaseEvent event, EventListener listener) {
+        record(Kind.ENQUEUED, dispatcher, event, listener, null);
+    }
+
+    //@Override
+    public void invokeBegin(EventDispatcher dispatcher, IBaseEvent event, EventListener listener) {
+        _invoking.get().add(record(Kind.INVOKE_BEGIN, dispatcher, event, listener, null));
+    }
+
+    //@Override
+    public void invokeEnd(EventDispatcher dispatcher, IBaseEvent event, EventListener listener, Throwable failure) {
+        List<Long> invoking = _invoking.get();
+        if (!invoking.isEmpty()) {
+            invoking.remove(invoking.size() - 1);
+        }
+        record(Kind.INVOKE_END, dispatcher, event, listener, failure);
+    }
+
+    /**
+     * Copy of the records so far, in call order.
+     */
+    public synchronized List<Record> getRecords() {
+        return new ArrayList<Record>(_records);
+    }
+
+    /**
+     * Parent of the latest dispatch of {@code event}, null at top level or if never seen. See
+     * {@link #getParent(Record)} for earlier dispatches of a reused event.
+     */
+    public synchronized IBaseEvent getParent(IBaseEvent event) {
+        for (int i = _records.size() - 1; i >= 0; i--) {
+            Record record = _records.get(i);
+            if (record.kind == Kind.DISPATCH_BEGIN && record.event == event) {
+                return record.parent;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * {@link Kind#DISPATCH_BEGIN} record of the dispatch whose handler made the dispatch of {@code record}.
+     *
+     * @param record any record of the child dispatch.
+     * @return the parent dispatch, null at top level.
+     */
+    public synchronized Record getParent(Record record) {
+        long parentId = 0;
+        for (Record begin : _records) {
+            if (begin.kind == Kind.DISPATCH_BEGIN && begin.dispatchId == record.dispatchId) {
+                parentId = begin.parentId;
+                break;
+            }
+        }
+        if (parentId == 0) {
+            return null;
+        }
+
+        for (Record begin : _records) {
+            if (begin.kind == Kind.DISPATCH_BEGIN && begin.dispatchId == parentId) {
+                return begin;
+            }
+        }
+        return null;
+    }
+
+    public synchronized void clear() {
+        _records.clear();
+        _latest.clear();
+    }
+
+    /**
+     * Appends a record of the latest dispatch of {@code event} on {@code dispatcher}.
+     *
+     * @return the dispatch id of the record, 0 if the dispatch was never seen.
+     */
+    private synchronized long record(Kind kind, EventDispatcher dispatcher, IBaseEvent event, EventListener listener,
+                                     Throwable failure) {
+        Long id = _latest.get(new DispatchKey(dispatcher, event));
+        long dispatchId = id != null ? id : 0;
+        _records.add(new Record(kind, dispatcher, event, listener, null, failure, dispatchId, 0));
+        return dispatchId;
+    }
+
+    /** Dispatcher and event, compared by identity. */
+    private static final class DispatchKey {
+        final EventDispatcher dispatcher;
+        final IBaseEvent event;
+
+        DispatchKey(EventDispatcher dispatcher, IBaseEvent event) {
+            this.dispatcher = dispatcher;
+            this.event = event;
+        }
+
+        @Override public boolean equals(Object o) {
+            if (!(o instanceof DispatchKey)) {
+                return false;
+            }
+            DispatchKey other = (DispatchKey) o;
+            return dispatcher == other.dispatcher && event == other.event;
+        }
+
+        @Override public int hashCode() {
+            return 31 * System.identityHashCode(dispatcher) + System.identityHashCode(event);
+        }
+    }
+
+    /** One callback. */
+    public static final class Record {
+        public final Kind kind;
+        public final EventDispatcher dispatcher;
+        public final IBaseEvent event;
+        /** Null for dispatch callbacks. */
+        public final EventListener listener;
+        /** Only set for {@link Kind#DISPATCH_BEGIN}. */
+        public final IBaseEvent parent;
+        /** Only set for a failed {@link Kind#INVOKE_END}. */
+        public final Throwable failure;
+        /**
+         * Dispatch this record belongs to, 0 if its dispatch was not recorded, such as after {@link #clear()}, or was
+         * evicted.
+         */
+        public final long dispatchId;
+        /** Only set for {@link Kind#DISPATCH_BEGIN}: id of the parent dispatch, 0 at top level. */
+        public final long parentId;
+        public final Thread thread;
+        public final long nanoTime;
+
+        Record(Kind kind, EventDispatcher dispatcher, IBaseEvent event, EventListener listener, IBaseEvent parent,
+               Throwable failure, long dispatchId, long parentId) {
+            this.kind = kind;
+            this.dispatcher = dispatcher;
+            this.event = event;
+            this.listener = listener;
+            this.parent = parent;
+            this.failure = failure;
+            this.dispatchId = dispatchId;
+            this.parentId = parentId;
+            this.thread = Thread.currentThread();
+            this.nanoTime = System.nanoTime();
+        }
+
+        @Override public String toString() {
+            return kind + " " + event + (listener != null ? " " + listener : "") + " on " + dispatcher;
+        }
+    }
+}
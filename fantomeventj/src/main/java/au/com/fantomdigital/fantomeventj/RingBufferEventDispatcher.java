@@ -0,0 +1,486 @@
+/*
+ * Copyright (C) 2015 Fantom Digital Pty. Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package au.com.fantomdigital.fantomeventj;
+
+import java.util.Collection;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+
+/*
+ * RingBufferEventDispatcher: An event dispatcher publishing events into a preallocated ring
+ * buffer drained by dedicated consumer threads, for high rate event streams.
+ *
+ * <p>There must be a single producer: every dispatch has to come from the same thread, which
+ * may not be a consumer thread. Publishing blocks, using the {@link WaitStrategy}, while the
+ * slowest consumer is a full ring behind. Events may be published before {@link #start()}, up to
+ * a full ring; publishing into a full ring whose consumers are not running fails instead of
+ * waiting forever.</p>
+ *
+ * <p>Listeners are spread over the consumers by their hash code, so a listener always runs on
+ * the same consumer and receives its events in dispatch order. Consumers handle everything
+ * published since their last pass in one batch, see {@link #onBatchStart(int, long, int)}.</p>
+ *
+ * <p>Sticky events replayed to a newly added listener skip the ring, which only the producer
+ * may publish to, and are handed to the consumer of that listener before its next batch.</p>
+ *
+ * Project: fantomeventj
+ *
+ * @author sfdi
+ * @date 17/10/26
+ */
+public class RingBufferEventDispatcher extends EventDispatcher {
+    public static final int DEFAULT_BUFFER_SIZE = 1024;
+
+    private final int _mask;
+    /** Preallocated slots: event of each sequence. */
+    private final IBaseEvent[] _events;
+    /** Preallocated slots: listener snapshot taken when each sequence was published. */
+    private final ListenerSnapshot[] _slotListeners;
+    /** Consumers yet to pass each slot, the last one clears it. Null with a single consumer. */
+    private final AtomicIntegerArray _remaining;
+
+    private final WaitStrategy _waitStrategy;
+    private final ThreadFactory _threadFactory;
+
+    /** Last published sequence. */
+    private final Sequence _cursor = new Sequence();
+    /** Last sequence handled by each consumer. */
+    private final Sequence[] _consumed;
+    private final Thread[] _consumers;
+    /** Sticky events waiting for each consumer, replayed to listeners added from any thread. */
+    private final ConcurrentLinkedQueue<Replay>[] _replays;
+    /** Replays queued but not yet handled. */
+    private final AtomicInteger _pendingReplays = new AtomicInteger();
+
+    /** Last claimed sequence, producer only. */
+    private long _claimed = -1;
+    /** Slowest consumer sequence last seen by the producer, producer only. */
+    private long _gatingCache = -1;
+    /** The only thread allowed to publish, captured on first dispatch. */
+    private final AtomicReference<Thread> _producer = new AtomicReference<Thread>();
+
+    private volatile boolean _running;
+
+    /**
+     * Creates a new RingBufferEventDispatcher with {@link #DEFAULT_BUFFER_SIZE} slots and one parking consumer.
+     */
+    public RingBufferEventDispatcher(Object target) {
+        this(DEFAULT_BUFFER_SIZE, 1, WaitStrategy.PARK, DispatchExecutors.daemonThreads("fantomeventj-ring"),
+                LooperBinder.ANY, DEFAULT_IDENTIFIER, target);
+    }
+
+    /**
+     * Creates a new RingBufferEventDispatcher. Consumers only run once {@link #start()} is called.
+     *
+     * @param bufferSize number of slots, a power of two.
+     * @param consumers number of consumer threads.
+     * @param waitStrategy how consumers wait for events and the producer for free slots.
+     * @param threadFactory creates the consumer threads.
+     * @param binder Looper Binder for register, unregister, and post actions.
+     * @param id A brief name for this satellite, for debug needs. Should be a valid Java id.
+     */
+    public RingBufferEventDispatcher(int bufferSize, int consumers, WaitStrategy waitStrategy,
+                                     ThreadFactory threadFactory, LooperBinder binder, String id, Object target) {
+        super(binder, id, target);
+
+        if (bufferSize < 1 || Integer.bitCount(bufferSize) != 1) {
+            throw new IllegalArgumentException("Ring buffer size " + bufferSize + " must be a power of two.");
+        }
+        if (consumers < 1) {
+            throw new IllegalArgumentException("Ring buffer needs at least one consumer, got " + consumers + ".");
+        }
+        if (waitStrategy == null || threadFactory == null) {
+            throw new NullPointerException("Ring buffer wait strategy and thread factory cannot be null.");
+        }
+
+        _mask = bufferSize - 1;
+        _events = new IBaseEvent[bufferSize];
+        _slotListeners = new ListenerSnapshot[bufferSize];
+        _waitStrategy = waitStrategy;
+        _threadFactory = threadFactory;
+
+        _remaining = consumers > 1 ? new AtomicIntegerArray(bufferSize) : null;
+        _consumed = new Sequence[consumers];
+        _consumers = new Thread[consumers];
+        _replays = newReplayQueues(consumers);
+        for (int i = 0; i < consumers; i++) {
+            _consumed[i] = new Sequence();
+            _replays[i] = new ConcurrentLinkedQueue<Replay>();
+        }
+    }
+
+    /**
+     * Starts the consumer threads.
+     *
+     * @throws IllegalStateException if already started.
+     */
+    public synchronized void start() {
+        if (_running || _consumers[0] != null) {
+            throw new IllegalStateException("Event satellite " + this + " was already started.");
+        }
+
+        _running = true;
+        for (int i = 0; i < _consumers.length; i++) {
+            _consumers[i] = _threadFactory.newThread(new Consumer(i));
+            _consumers[i].start();
+        }
+    }
+
+    /**
+     * Stops the consumers once they have handled everything published so far, and waits for them.
+     */
+    public synchronized void halt() throws InterruptedException {
+        _running = false;
+        for (Thread consumer : _consumers) {
+            if (consumer != null && consumer != Thread.currentThread()) {
+                consumer.join();
+            }
+        }
+    }
+
+    /**
+     * Waits until every consumer has handled everything published so far, or the timeout elapses.
+     *
+     * @return true if caught up, false if the timeout elapsed first.
+     */
+    public boolean awaitQuiescence(long timeout, TimeUnit unit) throws InterruptedException {
+        long deadline = System.nanoTime() + unit.toNanos(timeout);
+        long published = _cursor.get();
+
+        int counter = 0;
+        while (minimumConsumed() < published || _pendingReplays.get() > 0) {
+            if (Thread.interrupted()) {
+                throw new InterruptedException();
+            }
+            if (System.nanoTime() - deadline >= 0) {
+                return false;
+            }
+            counter = _waitStrategy.idle(counter);
+        }
+        return true;
+    }
+
+    /**
+     * Number of events published but not yet handled by the slowest consumer.
+     */
+    public long countPendingEvents() {
+        return _cursor.get() - minimumConsumed();
+    }
+
+    /**
+     * Publishes {@code event} and its current listener snapshot into the next slot.
+     *
+     * @throws IllegalStateException if called from a thread other than the first producer, or if the ring is full
+     *                               while the consumers are not running.
+     */
+    @Override public void dispatchEvent(IBaseEvent event) {
+        bindLooper();
+        claimProducer();
+
+        DispatchMetrics metrics = getMetrics();
+        if (metrics != null) {
+            metrics.recordDispatch(event);
+        }
+
+        ListenerSnapshot listeners = getEventListeners(event);
+        DispatchTracer tracer = getTracer();
+        if (tracer == null) {
+            publish(event, listeners);
+            return;
+        }
+
+        tracer.dispatchBegin(this, event, tracedEvent());
+        try {
+            // before publishing, consumers may handle the event right away
+            for (int i = 0; i < listeners.size(); i++) {
+                traceEnqueued(event, listeners.get(i));
+            }
+            publish(event, listeners);
+        } finally {
+            tracer.dispatchEnd(this, event);
+        }
+    }
+
+    /**
+     * Publishes {@code event} with the current capture listeners, so a descendant propagating it never runs them on
+     * its own thread.
+     *
+     * @throws IllegalStateException if called from a thread other than the first producer, or if the ring is full
+     *                               while the consumers are not running.
+     */
+    @Override protected void dispatchCaptureEvent(IBaseEvent event) {
+        bindLooper();
+        claimProducer();
+
+        ListenerSnapshot listeners = getCaptureListeners(event);
+        for (int i = 0; i < listeners.size(); i++) {
+            traceEnqueued(event, listeners.get(i));
+        }
+        publish(event, listeners);
+    }
+
+    /**
+     * Makes the calling thread the producer if there is none yet.
+     *
+     * @throws IllegalStateException if another thread is the producer.
+     */
+    private void claimProducer() {
+        Thread current = Thread.currentThread();
+        Thread producer = _producer.get();
+        if (producer != current) {
+            // two threads publishing first race for the role, only one may win it
+            if (producer != null || !_producer.compareAndSet(null, current)) {
+                throw new IllegalStateException("Event satellite " + this + " only accepts events from "
+                        + _producer.get());
+            }
+        }
+    }
+
+    private void publish(IBaseEvent event, ListenerSnapshot listeners) {
+        if (listeners.size() == 0) {
+            return;
+        }
+
+        long next = _claimed + 1;
+        long wrapPoint = next - _events.length;
+        if (wrapPoint > _gatingCache) {
+            // ring is full as far as we know, wait for the slowest consumer
+            int counter = 0;
+            long minimum;
+            while (wrapPoint > (minimum = minimumConsumed())) {
+                if (!_running) {
+                    // not started or halted, nothing will ever free a slot
+                    throw new IllegalStateException("Event satellite " + this + " is full and its consumers are not"
+                            + " running.");
+                }
+                counter = _waitStrategy.idle(counter);
+            }
+            _gatingCache = minimum;
+        }
+
+        int slot = (int) next & _mask;
+        _events[slot] = event;
+        _slotListeners[slot] = listeners;
+        if (_remaining != null) {
+            _remaining.set(slot, _consumed.length);
+        }
+        _claimed = next;
+        _cursor.lazySet(next);
+    }
+
+    /**
+     * Publishes every event of {@code events} in order, one slot each.
+     *
+     * @throws IllegalStateException if called from a thread other than the first producer, or if the ring is full
+     *                               while the consumers are not running.
+     */
+    @Override public void dispatchEvents(Collection<? extends IBaseEvent> events) {
+        for (IBaseEvent event : events) {
+            dispatchEvent(event);
+        }
+    }
+
+    /**
+     * Hands the sticky {@code event} to the consumer of {@code listener}, which delivers it before its next batch.
+     */
+    @Override protected void replayStickyEvent(IBaseEvent event, EventListener listener) {
+        _pendingReplays.incrementAndGet();
+        _replays[consumerOf(listener)].offer(new Replay(event, listener));
+    }
+
+    /**
+     * Called on consumer {@code consumer} before it handles a run of {@code size} events, starting at
+     * {@code firstSequence}. Override to prepare batched work.
+     */
+    protected void onBatchStart(int consumer, long firstSequence, int size) {
+    }
+
+    /**
+     * Called on consumer {@code consumer} once it handled a run of {@code size} events. Override to flush batched
+     * work.
+     */
+    protected void onBatchEnd(int consumer, long firstSequence, int size) {
+    }
+
+    /**
+     * Called on the consumer thread when a handler throws. Hands the failure to the uncaught exception handler of
+     * that thread by default.
+     *
+     * @param event event that was being delivered.
+     * @param listener listener that failed.
+     * @param e the failure, as reported by {@link EventDispatcher#process(IBaseEvent, EventListener)}, wrapping it
+     *          when it is an {@link Error}.
+     */
+    protected void onDeliveryFailure(IBaseEvent event, EventListener listener, RuntimeException e) {
+        Thread thread = Thread.currentThread();
+        Thread.UncaughtExceptionHandler handler = thread.getUncaughtExceptionHandler();
+        if (handler != null) {
+            handler.uncaughtException(thread, e);
+        }
+    }
+
+    /**
+     * Halts the consumers and clears the satellite.
+     */
+    @Override public void destroy() {
+        try {
+            halt();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+
+        super.destroy();
+    }
+
+    @Override public String toString() {
+        return "[RingBufferEventSatellite " + super.toString() + "]";
+    }
+
+    private int consumerOf(EventListener listener) {
+        return (listener.hashCode() & Integer.MAX_VALUE) % _consumed.length;
+    }
+
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    private static ConcurrentLinkedQueue<Replay>[] newReplayQueues(int consumers) {
+        return new ConcurrentLinkedQueue[consumers];
+    }
+
+    private long minimumConsumed() {
+        long minimum = Long.MAX_VALUE;
+        for (Sequence sequence : _consumed) {
+            minimum = Math.min(minimum, sequence.get());
+        }
+        return minimum;
+    }
+
+    /** Drains the ring for the listeners assigned to one consumer index. */
+    private final class Consumer implements Runnable {
+        private final int _index;
+
+        Consumer(int index) {
+            _index = index;
+        }
+
+        //@Override
+        public void run() {
+            Sequence consumed = _consumed[_index];
+            ConcurrentLinkedQueue<Replay> replays = _replays[_index];
+            long next = consumed.get() + 1;
+            int counter = 0;
+
+            while (true) {
+                Replay replay;
+                while ((replay = replays.poll()) != null) {
+                    try {
+                        if (replay.listener.isValid() && !isPropagationStopped(replay.event)) {
+                            deliver(replay.event, replay.listener);
+                        }
+                    } finally {
+                        _pendingReplays.decrementAndGet();
+                    }
+                }
+
+                long available = _cursor.get();
+                if (available < next) {
+                    if (!_running && _cursor.get() < next && replays.isEmpty()) {
+                        return;
+                    }
+                    counter = _waitStrategy.idle(counter);
+                    continue;
+                }
+
+                int size = (int) (available - next + 1);
+                try {
+                    onBatchStart(_index, next, size);
+                    for (long sequence = next; sequence <= available; sequence++) {
+                        int slot = (int) sequence & _mask;
+                        IBaseEvent event = _events[slot];
+                        ListenerSnapshot listeners = _slotListeners[slot];
+
+                        for (int i = 0; i < listeners.size(); i++) {
+                            EventListener listener = listeners.get(i);
+                            if (consumerOf(listener) == _index && listener.isValid()
+                                    && !isPropagationStopped(event)) {
+                                deliver(event, listener);
+                            }
+                        }
+                        release(slot);
+                    }
+                    onBatchEnd(_index, next, size);
+                } finally {
+                    // even if a batch hook threw, a consumer that stopped advancing would block the producer forever
+                    consumed.lazySet(available);
+                    next = available + 1;
+                    counter = 0;
+                }
+            }
+        }
+    }
+
+    /**
+     * Delivers one event, reporting any failure so the consumer keeps running.
+     */
+    private void deliver(IBaseEvent event, EventListener listener) {
+        try {
+            process(event, listener);
+        } catch (RuntimeException e) {
+            onDeliveryFailure(event, listener, e);
+        } catch (Throwable e) {
+            onDeliveryFailure(event, listener, new RuntimeException("Could not dispatch event: " + event.getClass()
+                    + " to listener " + listener + ": " + e, e));
+        }
+    }
+
+    /**
+     * Clears {@code slot} once every consumer has passed it, so handled events can be collected before the ring wraps.
+     * Runs before the consumer publishes its progress, so the producer never reuses a slot still being cleared.
+     */
+    private void release(int slot) {
+        if (_remaining == null || _remaining.decrementAndGet(slot) == 0) {
+            _events[slot] = null;
+            _slotListeners[slot] = null;
+        }
+    }
+
+    /** Sticky event waiting to be replayed to a newly added listener. */
+    private static final class Replay {
+        final IBaseEvent event;
+        final EventListener listener;
+
+        Replay(IBaseEvent event, EventListener listener) {
+            this.event = event;
+            this.listener = listener;
+        }
+    }
+
+    /** Sequence counter padded to its own cache line, so the producer and consumers do not false share. */
+    @SuppressWarnings("unused")
+    static final class Sequence extends AtomicLong {
+        private static final long serialVersionUID = 1L;
+
+        private long _p1, _p2, _p3, _p4, _p5, _p6, _p7;
+
+        Sequence() {
+            super(-1);
+        }
+    }
+}
@@ -0,0 +1,223 @@
+/*
+ * Copyright (C) 2015 Fantom Digital Pty. Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package au.com.fantomdigital.fantomeventj;
+
+import java.util.Collection;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+
+/*
+ * ShardedEventDispatcher: An event dispatcher split into stripes, each an {@link EventLoopDispatcher}
+ * with its own listeners, queue and consumer thread, for many threads dispatching at once.
+ *
+ * <p>Events and listeners go to the stripe picked by the hash of their event class and name, so
+ * dispatches of different kinds of events rarely touch the same queue or consumer. Events of one
+ * class and name always share a stripe, and are delivered in the order each thread dispatched them.
+ * There is no order between stripes.</p>
+ *
+ * <p>A stripe only knows the listeners of its own keys, so listeners are matched by exact event
+ * class and name. A sharded dispatcher is not part of a dispatcher tree; propagating an event
+ * dispatches it.</p>
+ *
+ * Project: fantomeventj
+ *
+ * @author sfdi
+ * @date 17/10/26
+ */
+public class ShardedEventDispatcher implements IEventDispatcher {
+
+    private final EventLoopDispatcher[] _stripes;
+    private final String _identifier;
+    private final Object _target;
+
+    /**
+     * Creates a new ShardedEventDispatcher with one stripe per available processor. Call {@link #start()} to deliver
+     * events.
+     */
+    public ShardedEventDispatcher(Object target) {
+        this(Runtime.getRuntime().availableProcessors(), DispatchExecutors.daemonThreads("fantomeventj-stripe"),
+                EventDispatcher.DEFAULT_IDENTIFIER, target);
+    }
+
+    /**
+     * Creates a new ShardedEventDispatcher.
+     *
+     * @param stripes number of stripes, each with a consumer thread.
+     * @param threadFactory creates the consumer threads.
+     * @param id A brief name for this satellite, for debug needs. Should be a valid Java id.
+     */
+    public ShardedEventDispatcher(int stripes, ThreadFactory threadFactory, String id, Object target) {
+        if (stripes < 1) {
+            throw new IllegalArgumentException("Sharded dispatcher needs at least one stripe, got " + stripes + ".");
+        }
+        if (target == null) {
+            throw new NullPointerException("Event dispatcher target cannot be null.");
+        }
+
+        _identifier = id;
+        _target = target;
+        _stripes = new EventLoopDispatcher[stripes];
+        for (int i = 0; i < stripes; i++) {
+            _stripes[i] = new EventLoopDispatcher(threadFactory, LooperBinder.ANY, id + "-" + i, target);
+        }
+    }
+
+    /**
+     * Starts the consumer of every stripe.
+     */
+    public void start() {
+        for (EventLoopDispatcher stripe : _stripes) {
+            stripe.start();
+        }
+    }
+
+    /**
+     * Stops every consumer once it has delivered everything dispatched so far, and waits for them.
+     */
+    public void halt() throws InterruptedException {
+        for (EventLoopDispatcher stripe : _stripes) {
+            stripe.halt();
+        }
+    }
+
+    /**
+     * Waits until every stripe has delivered everything dispatched so far, or the timeout elapses.
+     *
+     * @return true if caught up, false if the timeout elapsed first.
+     */
+    public boolean awaitQuiescence(long timeout, TimeUnit unit) throws InterruptedException {
+        long deadline = System.nanoTime() + unit.toNanos(timeout);
+        for (EventLoopDispatcher stripe : _stripes) {
+            if (!stripe.awaitQuiescence(Math.max(0L, deadline - System.nanoTime()), TimeUnit.NANOSECONDS)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    //@Override
+    public void addEventListener(IBaseEvent event, EventListener listener) {
+        stripe(listener).addEventListener(event, listener);
+    }
+
+    /**
+     * Adds {@code listener} with a delivery priority, see
+     * {@link EventDispatcher#addEventListener(IBaseEvent, EventListener, int)}.
+     */
+    public void addEventListener(IBaseEvent event, EventListener listener, int priority) {
+        stripe(listener).addEventListener(event, listener, priority);
+    }
+
+    //@Override
+    public void removeEventListener(IBaseEvent event, EventListener listener) {
+        stripe(listener).removeEventListener(event, listener);
+    }
+
+    //@Override
+    public void removeAllEventListener(IBaseEvent event) {
+        // every name of the event class, each on its own stripe
+        for (EventLoopDispatcher stripe : _stripes) {
+            stripe.removeAllEventListener(event);
+        }
+    }
+
+    //@Override
+    public void removeAllEventListener() {
+        for (EventLoopDispatcher stripe : _stripes) {
+            stripe.removeAllEventListener();
+        }
+    }
+
+    //@Override
+    public void dispatchEvent(IBaseEvent event, Object sourceTarget) {
+        if (event == null) {
+            throw new NullPointerException("Event to dispatchEvent must not be null.");
+        }
+
+        if (sourceTarget == _target) {
+            dispatchEvent(event);
+        }
+    }
+
+    //@Override
+    public void dispatchEvent(IBaseEvent event) {
+        if (event == null) {
+            throw new NullPointerException("Event to dispatchEvent must not be null.");
+        }
+        stripe(event).dispatchEvent(event);
+    }
+
+    //@Override
+    public void dispatchEvents(Collection<? extends IBaseEvent> events) {
+        for (IBaseEvent event : events) {
+            dispatchEvent(event);
+        }
+    }
+
+    /**
+     * Dispatches {@code event} as a sticky event of its stripe, see {@link EventDispatcher#dispatchStickyEvent(IBaseEvent)}.
+     */
+    public void dispatchStickyEvent(IBaseEvent event) {
+        if (event == null) {
+            throw new NullPointerException("Event to dispatchStickyEvent must not be null.");
+        }
+        stripe(event).dispatchStickyEvent(event);
+    }
+
+    /**
+     * Number of stripes.
+     */
+    public int getStripeCount() {
+        return _stripes.length;
+    }
+
+    /**
+     * Index of the stripe handling events of the class and name of {@code event}.
+     */
+    public int stripeIndex(IBaseEvent event) {
+        return stripeIndex(event.getClass(), event.getName());
+    }
+
+    private int stripeIndex(Class<?> type, String name) {
+        int hash = type.hashCode() * 31 + name.hashCode();
+        // spread the high bits, names often only differ in their last characters
+        hash ^= hash >>> 16;
+        return (hash & Integer.MAX_VALUE) % _stripes.length;
+    }
+
+    /**
+     * Halts every stripe and clears the satellite.
+     */
+    public void destroy() {
+        for (EventLoopDispatcher stripe : _stripes) {
+            stripe.destroy();
+        }
+    }
+
+    @Override public String toString() {
+        return "[ShardedEventSatellite " + _identifier + " x" + _stripes.length + "]";
+    }
+
+    private EventLoopDispatcher stripe(IBaseEvent event) {
+        return _stripes[stripeIndex(event)];
+    }
+
+    /** Stripe of the events {@code listener} listens to, which its dispatcher keys it by. */
+    private EventLoopDispatcher stripe(EventListener listener) {
+        return _stripes[stripeIndex(listener.getEventClass(), listener.getEventName())];
+    }
+}
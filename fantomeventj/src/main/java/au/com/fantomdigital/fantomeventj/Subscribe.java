@@ -0,0 +1,55 @@
+/*
+ * Copyright (C) 2015 Fantom Digital Pty. Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package au.com.fantomdigital.fantomeventj;
+
+import java.lang.annotation.Documented;
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Subscribe: Marks a handler method to be registered by {@link EventDispatcher#register(Object)}.
+ *
+ * <p>The method must take a single argument, the {@link IBaseEvent} class it listens to. It may be private.</p>
+ *
+ * <pre>
+ * &#64;Subscribe(name = "started")
+ * private void onStarted(TestEvent event) { ... }
+ * </pre>
+ *
+ * Project: fantomeventj
+ *
+ * @author sfdi
+ * @date 17/10/26
+ */
+@Documented
+@Retention(RetentionPolicy.RUNTIME)
+@Target(ElementType.METHOD)
+public @interface Subscribe {
+
+  /**
+   * Name of the events to receive. Defaults to the simple name of the event class, following the
+   * {@link BaseEvent} convention that the name matches the class name.
+   */
+  String name() default "";
+
+  /**
+   * Delivery priority, higher first. Listeners of equal priority are called in registration order.
+   */
+  int priority() default 0;
+}
@@ -0,0 +1,42 @@
+/*
+ * Copyright (C) 2015 Fantom Digital Pty. Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package au.com.fantomdigital.fantomeventj;
+
+/**
+ * SubscriberIndex: Creates the listeners of every {@link Subscribe} method of a target class.
+ *
+ * <p>The fantomeventj-compiler annotation processor generates one implementation per class declaring
+ * {@link Subscribe} methods, named after the class binary name plus {@link #SUFFIX}, calling each handler
+ * directly. {@link EventDispatcher#register(Object)} uses the generated index when present and falls back to
+ * reflection otherwise.</p>
+ *
+ * Project: fantomeventj
+ *
+ * @author sfdi
+ * @date 17/10/26
+ */
+public interface SubscriberIndex {
+    /** Appended to the binary name of a subscriber class to name its generated index. */
+    String SUFFIX = "$$SubscriberIndex";
+
+    /**
+     * Creates the listeners of every {@link Subscribe} method of {@code target}.
+     *
+     * @param target instance of the indexed class or of a subclass.
+     */
+    EventListener[] listeners(Object target);
+}
@@ -0,0 +1,44 @@
+/*
+ * Copyright (C) 2015 Fantom Digital Pty. Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package au.com.fantomdigital.fantomeventj;
+
+import java.lang.reflect.Method;
+
+/**
+ * SubscriberMethod: A {@link Subscribe} method of a class, with its invoker strategy already resolved.
+ *
+ * Project: fantomeventj
+ *
+ * @author sfdi
+ * @date 17/10/26
+ */
+final class SubscriberMethod {
+    final Method method;
+    final Class<?> eventClass;
+    final String eventName;
+    final int priority;
+    final EventInvokers.Factory invokers;
+
+    SubscriberMethod(Method method, Class<?> eventClass, String eventName, int priority,
+                     EventInvokers.Factory invokers) {
+        this.method = method;
+        this.eventClass = eventClass;
+        this.eventName = eventName;
+        this.priority = priority;
+        this.invokers = invokers;
+    }
+}
@@ -0,0 +1,133 @@
+/*
+ * Copyright (C) 2015 Fantom Digital Pty. Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package au.com.fantomdigital.fantomeventj;
+
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * SubscriberMethods: Process wide cache of the {@link SubscriberIndex} of each target class.
+ *
+ * <p>The first registration of a class loads its generated index if the annotation processor produced one.
+ * Otherwise it scans the declared methods of the class and its superclasses and resolves an invoker strategy
+ * per method. Every later registration of the class is a map lookup.</p>
+ *
+ * Project: fantomeventj
+ *
+ * @author sfdi
+ * @date 17/10/26
+ */
+final class SubscriberMethods {
+    private static final ConcurrentMap<Class<?>, SubscriberIndex> CACHE =
+            new ConcurrentHashMap<Class<?>, SubscriberIndex>();
+
+    private SubscriberMethods() {
+        // No instances.
+    }
+
+    /**
+     * Index of {@code targetClass}, resolved on first use.
+     *
+     * @throws IllegalArgumentException if a {@link Subscribe} method does not take a single {@link IBaseEvent}.
+     */
+    static SubscriberIndex forClass(Class<?> targetClass) {
+        SubscriberIndex index = CACHE.get(targetClass);
+        if (index == null) {
+            index = generated(targetClass);
+            if (index == null) {
+                index = new ReflectiveIndex(scan(targetClass));
+            }
+
+            SubscriberIndex raced = CACHE.putIfAbsent(targetClass, index);
+            if (raced != null) {
+                index = raced;
+            }
+        }
+        return index;
+    }
+
+    /**
+     * Loads the index generated for {@code targetClass}, or null if there is none.
+     */
+    private static SubscriberIndex generated(Class<?> targetClass) {
+        try {
+            Class<?> indexClass = Class.forName(targetClass.getName() + SubscriberIndex.SUFFIX, true,
+                    targetClass.getClassLoader());
+            return (SubscriberIndex) indexClass.getDeclaredConstructor().newInstance();
+        } catch (ClassNotFoundException e) {
+            return null;
+        } catch (Exception e) {
+            throw new IllegalStateException("Could not create the subscriber index of " + targetClass, e);
+        }
+    }
+
+    private static SubscriberMethod[] scan(Class<?> targetClass) {
+        List<SubscriberMethod> found = new ArrayList<SubscriberMethod>();
+        // signatures already taken by a subclass, so an overridden handler is not registered twice
+        Set<String> overridden = new HashSet<String>();
+
+        for (Class<?> type = targetClass; type != null && type != Object.class; type = type.getSuperclass()) {
+            for (Method method : type.getDeclaredMethods()) {
+                Subscribe subscribe = method.getAnnotation(Subscribe.class);
+                if (subscribe == null || method.isBridge() || method.isSynthetic()) {
+                    continue;
+                }
+
+                Class<?>[] params = method.getParameterTypes();
+                if (params.length != 1 || !IBaseEvent.class.isAssignableFrom(params[0])) {
+                    throw new IllegalArgumentException("Subscribe method " + method
+                            + " must take a single IBaseEvent argument.");
+                }
+
+                if (!Modifier.isPrivate(method.getModifiers())
+                        && !overridden.add(method.getName() + "(" + params[0].getName() + ")")) {
+                    continue;
+                }
+
+                String name = subscribe.name().length() > 0 ? subscribe.name() : params[0].getSimpleName();
+                method.setAccessible(true);
+                found.add(new SubscriberMethod(method, params[0], name, subscribe.priority(),
+                        EventInvokers.factory(method)));
+            }
+        }
+
+        return found.toArray(new SubscriberMethod[found.size()]);
+    }
+
+    /** Index binding the reflected {@link Subscribe} methods of a class. */
+    static final class ReflectiveIndex implements SubscriberIndex {
+        private final SubscriberMethod[] _methods;
+
+        ReflectiveIndex(SubscriberMethod[] methods) {
+            _methods = methods;
+        }
+
+        public EventListener[] listeners(Object target) {
+            EventListener[] listeners = new EventListener[_methods.length];
+            for (int i = 0; i < _methods.length; i++) {
+                listeners[i] = new EventListener(_methods[i], target);
+            }
+            return listeners;
+        }
+    }
+}
@@ -0,0 +1,41 @@
+/*
+ * Copyright (C) 2015 Fantom Digital Pty. Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package au.com.fantomdigital.fantomeventj;
+
+/**
+ * TargetEventInvoker: A handler method call taking its target object with every event.
+ *
+ * <p>Unlike an {@link EventInvoker}, it does not hold the target, so one instance serves every target of a handler
+ * method, and weak listeners call it without keeping their target reachable. Generated {@link SubscriberIndex}
+ * classes share one per handler method.</p>
+ *
+ * Project: fantomeventj
+ *
+ * @author sfdi
+ * @date 17/10/26
+ */
+public interface TargetEventInvoker {
+
+  /**
+   * Calls the handler method of {@code target} with {@code event}.
+   *
+   * @param target object sporting the handler method, ignored for static methods.
+   * @param event event to hand to the handler method.
+   * @throws Throwable whatever the handler method throws, unwrapped.
+   */
+  void invoke(Object target, Object event) throws Throwable;
+}
@@ -0,0 +1,53 @@
+/*
+ * Copyright (C) 2015 Fantom Digital Pty. Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package au.com.fantomdigital.fantomeventj;
+
+/**
+ * ThreadLooperBinder: A {@link LooperBinder} that confines {@link EventDispatcher} methods to one thread.
+ *
+ * Project: fantomeventj
+ *
+ * @author sfdi
+ * @date 17/10/26
+ */
+public class ThreadLooperBinder implements LooperBinder {
+  /** The only thread allowed to act on the satellite. */
+  private final Thread _thread;
+
+  public ThreadLooperBinder(Thread thread) {
+    if (thread == null) {
+      throw new NullPointerException("ThreadLooperBinder thread cannot be null.");
+    }
+    _thread = thread;
+  }
+
+  //@Override
+  public void bind(EventDispatcher satellite) {
+    if (Thread.currentThread() != _thread) {
+      throw new IllegalStateException("Event satellite " + satellite + " accessed from thread "
+              + Thread.currentThread().getName() + " instead of " + _thread.getName());
+    }
+  }
+
+  public Thread getThread() {
+    return _thread;
+  }
+
+  @Override public String toString() {
+    return "[ThreadLooperBinder " + _thread.getName() + "]";
+  }
+}
@@ -0,0 +1,76 @@
+/*
+ * Copyright (C) 2015 Fantom Digital Pty. Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package au.com.fantomdigital.fantomeventj;
+
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * WaitStrategy: How a {@link RingBufferEventDispatcher} thread waits when it can not make progress, either a consumer
+ * with no new events or the producer with no free slot.
+ *
+ * Project: fantomeventj
+ *
+ * @author sfdi
+ * @date 17/10/26
+ */
+public interface WaitStrategy {
+
+  /**
+   * Waits a little. Called repeatedly until progress can be made.
+   *
+   * @param counter value returned by the previous call of this wait, 0 on the first call.
+   * @return the counter for the next call.
+   */
+  int idle(int counter);
+
+
+  /** A {@link WaitStrategy} that burns its core, lowest latency. */
+  WaitStrategy BUSY_SPIN = new WaitStrategy() {
+    //@Override
+    public int idle(int counter) {
+      return counter;
+    }
+  };
+
+  /** A {@link WaitStrategy} that spins briefly then yields its core to other threads. */
+  WaitStrategy YIELD = new WaitStrategy() {
+    //@Override
+    public int idle(int counter) {
+      if (counter >= 100) {
+        Thread.yield();
+        return counter;
+      }
+      return counter + 1;
+    }
+  };
+
+  /** A {@link WaitStrategy} that spins, yields, then parks for short periods, lowest CPU usage. */
+  WaitStrategy PARK = new WaitStrategy() {
+    //@Override
+    public int idle(int counter) {
+      if (counter >= 200) {
+        LockSupport.parkNanos(100000L);
+        return counter;
+      }
+      if (counter >= 100) {
+        Thread.yield();
+      }
+      return counter + 1;
+    }
+  };
+
+}
@@ -0,0 +1,189 @@
+package au.com.fantomdigital.fantomeventj;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import junit.framework.TestCase;
+
+public class AsyncEventDispatcherTest extends TestCase {
+    private ExecutorService _executor;
+    private AsyncEventDispatcher _satellite;
+    private List<Integer> _ordered;
+    private AtomicInteger _failures;
+    private CountDownLatch _release;
+
+    @Override
+    protected void setUp() throws Exception {
+        super.setUp();
+
+        _executor = DispatchExecutors.fixed("async-test", 4);
+        _failures = new AtomicInteger();
+        _satellite = new AsyncEventDispatcher(_executor, this) {
+            @Override protected void onDeliveryFailure(IBaseEvent event, EventListener listener, RuntimeException e) {
+                _failures.incrementAndGet();
+            }
+        };
+        _ordered = Collections.synchronizedList(new ArrayList<Integer>());
+        _release = new CountDownLatch(1);
+    }
+
+    @Override
+    protected void tearDown() throws Exception {
+        super.tearDown();
+
+        _satellite.destroy();
+        _executor.shutdownNow();
+    }
+
+    private void onOrderedHandler(SequenceEvent event) {
+        _ordered.add(event.sequence);
+    }
+
+    private void onGatedHandler(SequenceEvent event) throws InterruptedException {
+        _release.await();
+        _ordered.add(event.sequence);
+    }
+
+    private void onBlockedHandler(TestEvent event) throws InterruptedException {
+        _release.await();
+    }
+
+    private void onFailingHandler(TestEvent event) {
+        throw new IllegalStateException("failing");
+    }
+
+    public void testListenerSeesEventsInDispatchOrder() throws Exception {
+        SequenceEvent event = new SequenceEvent(0, this);
+        _satellite.addEventListener(event, new EventListener(event, this, "onOrderedHandler"));
+
+        for (int i = 0; i < 1000; i++) {
+            _satellite.dispatchEvent(new SequenceEvent(i, this));
+        }
+
+        assertTrue(_satellite.awaitQuiescence(10, TimeUnit.SECONDS));
+        assertEquals(1000, _ordered.size());
+        for (int i = 0; i < 1000; i++) {
+            assertEquals(i, _ordered.get(i).intValue());
+        }
+    }
+
+    public void testSlowHandlerDoesNotBlockDispatcher() throws Exception {
+        TestEvent event = new TestEvent("TestEvent", this);
+        _satellite.addEventListener(event, new EventListener(event, this, "onBlockedHandler"));
+
+        _satellite.dispatchEvent(event);
+        _satellite.dispatchEvent(event);
+
+        assertFalse(_satellite.awaitQuiescence(50, TimeUnit.MILLISECONDS));
+        assertEquals(2, _satellite.countPendingDeliveries());
+
+        _release.countDown();
+        assertTrue(_satellite.awaitQuiescence(10, TimeUnit.SECONDS));
+        assertEquals(0, _satellite.countPendingDeliveries());
+    }
+
+    public void testFailuresAreReportedAndDeliveryContinues() throws Exception {
+        TestEvent event = new TestEvent("TestEvent", this);
+        _satellite.addEventListener(event, new EventListener(event, this, "onFailingHandler"));
+
+        _satellite.dispatchEvent(event);
+        _satellite.dispatchEvent(event);
+
+        assertTrue(_satellite.awaitQuiescence(10, TimeUnit.SECONDS));
+        assertEquals(2, _failures.get());
+    }
+
+    public void testConflatedMailboxDeliversLatestEvent() throws Exception {
+        _satellite.setConflationKey(ConflationKey.CLASS_AND_NAME);
+        SequenceEvent event = new SequenceEvent(0, this);
+        _satellite.addEventListener(event, new EventListener(event, this, "onGatedHandler"));
+
+        for (int i = 0; i < 100; i++) {
+            _satellite.dispatchEvent(new SequenceEvent(i, this));
+        }
+        _release.countDown();
+
+        assertTrue(_satellite.awaitQuiescence(10, TimeUnit.SECONDS));
+        assertTrue(_ordered.size() <= 2);
+        assertEquals(99, _ordered.get(_ordered.size() - 1).intValue());
+        assertEquals(100 - _ordered.size(), _satellite.countConflatedEvents());
+    }
+
+    public void testFullMailboxBlocksProducer() throws Exception {
+        _satellite.setQueueCapacity(2, OverflowPolicy.BLOCK);
+        SequenceEvent event = new SequenceEvent(0, this);
+        _satellite.addEventListener(event, new EventListener(event, this, "onGatedHandler"));
+
+        Thread producer = new Thread(new Runnable() {
+            //@Override
+            public void run() {
+                for (int i = 0; i < 10; i++) {
+                    _satellite.dispatchEvent(new SequenceEvent(i, this));
+                }
+            }
+        });
+        producer.start();
+        producer.join(100);
+        assertTrue(producer.isAlive());
+
+        _release.countDown();
+        producer.join(10000);
+        assertTrue(_satellite.awaitQuiescence(10, TimeUnit.SECONDS));
+        assertEquals(10, _ordered.size());
+        assertEquals(9, _ordered.get(9).intValue());
+        assertEquals(2, _satellite.getQueueHighWaterMark());
+    }
+
+    public void testFullMailboxDropsOldestEvents() throws Exception {
+        _satellite.setQueueCapacity(2, OverflowPolicy.DROP_OLDEST);
+        SequenceEvent event = new SequenceEvent(0, this);
+        _satellite.addEventListener(event, new EventListener(event, this, "onGatedHandler"));
+
+        for (int i = 0; i < 10; i++) {
+            _satellite.dispatchEvent(new SequenceEvent(i, this));
+        }
+        _release.countDown();
+
+        assertTrue(_satellite.awaitQuiescence(10, TimeUnit.SECONDS));
+        assertEquals(10 - _ordered.size(), _satellite.countDroppedEvents());
+        assertEquals(Arrays.asList(8, 9), _ordered.subList(_ordered.size() - 2, _ordered.size()));
+    }
+
+    public void testReregisteredSubscriberGetsANewMailbox() throws Exception {
+        Subscriber subscriber = new Subscriber();
+        _satellite.register(subscriber);
+        _satellite.dispatchEvent(new SequenceEvent(1, this));
+        assertTrue(_satellite.awaitQuiescence(10, TimeUnit.SECONDS));
+
+        _satellite.unregister(subscriber);
+        _satellite.register(subscriber);
+        _satellite.dispatchEvent(new SequenceEvent(2, this));
+
+        assertTrue(_satellite.awaitQuiescence(10, TimeUnit.SECONDS));
+        assertEquals(Arrays.asList(1, 2), subscriber.sequences);
+    }
+
+    static class Subscriber {
+        final List<Integer> sequences = Collections.synchronizedList(new ArrayList<Integer>());
+
+        @Subscribe(name = "SequenceEvent")
+        void onSequence(SequenceEvent event) {
+            sequences.add(event.sequence);
+        }
+    }
+
+    static class SequenceEvent extends BaseEvent {
+        final int sequence;
+
+        SequenceEvent(int sequence, Object target) {
+            super("SequenceEvent", target);
+            this.sequence = sequence;
+        }
+    }
+}
@@ -0,0 +1,110 @@
+package au.com.fantomdigital.fantomeventj;
+
+import java.util.concurrent.TimeUnit;
+
+import junit.framework.TestCase;
+
+public class DispatchMetricsTest extends TestCase {
+    private EventDispatcher _satellite;
+    private DispatchMetrics _metrics;
+
+    @Override
+    protected void setUp() throws Exception {
+        super.setUp();
+
+        _satellite = new EventDispatcher(LooperBinder.ANY, this);
+        _metrics = new DispatchMetrics();
+        _satellite.setMetrics(_metrics);
+    }
+
+    @Override
+    protected void tearDown() throws Exception {
+        super.tearDown();
+
+        _satellite.destroy();
+    }
+
+    private void onSlowHandler(TestEvent event) throws InterruptedException {
+        Thread.sleep(2);
+    }
+
+    private void onNestingHandler(TestEvent event) {
+        if (event.getName().equals("outer")) {
+            for (int i = 0; i < 3; i++) {
+                _satellite.dispatchEvent(new TestEvent("inner", this));
+            }
+        }
+    }
+
+    public void testDispatchesAreCountedPerClassAndName() {
+        _satellite.dispatchEvent(new TestEvent("started", this));
+        _satellite.dispatchEvent(new TestEvent("started", this));
+        _satellite.dispatchEvent(new BaseEvent("started", this));
+
+        DispatchMetrics.Snapshot snapshot = _metrics.snapshot();
+
+        assertEquals(2, snapshot.getDispatchCount(TestEvent.class, "started"));
+        assertEquals(1, snapshot.getDispatchCount(BaseEvent.class, "started"));
+        assertEquals(0, snapshot.getDispatchCount(TestEvent.class, "stopped"));
+    }
+
+    public void testHandlerTimesAreRecordedPerListener() throws Exception {
+        TestEvent event = new TestEvent("slow", this);
+        EventListener listener = new EventListener(event, this, "onSlowHandler");
+        _satellite.addEventListener(event, listener);
+
+        for (int i = 0; i < 5; i++) {
+            _satellite.dispatchEvent(event);
+        }
+
+        DispatchMetrics.ListenerTiming timing = _metrics.snapshot().getListenerTimings().get(listener);
+        assertEquals(5, timing.getCount());
+        assertTrue(timing.getMean(TimeUnit.MILLISECONDS) >= 2);
+        assertTrue(timing.getPercentile(50, TimeUnit.NANOSECONDS) <= timing.getMax(TimeUnit.NANOSECONDS));
+        assertTrue(timing.getPercentile(99, TimeUnit.MILLISECONDS) >= 1);
+    }
+
+    private void onTestHandler(TestEvent event) {
+    }
+
+    public void testRemovedListenersAreNotKept() throws Exception {
+        TestEvent event = new TestEvent("churn", this);
+        for (int i = 0; i < 1000; i++) {
+            EventListener listener = new EventListener(event, new Object() {
+                void onTestHandler(TestEvent event) {
+                }
+            }, "onTestHandler");
+            _satellite.addEventListener(event, listener);
+            _satellite.dispatchEvent(event);
+            _satellite.removeEventListener(event, listener);
+        }
+        EventListener kept = new EventListener(event, this, "onTestHandler");
+        _satellite.addEventListener(event, kept);
+        _satellite.dispatchEvent(event);
+
+        assertEquals(1, _metrics.snapshot().getListenerTimings().size());
+        assertNotNull(_metrics.snapshot().getListenerTimings().get(kept));
+        assertTrue(_metrics.countTimedListeners() <= 128);
+    }
+
+    public void testReentrantEnqueuesAndQueueDepthAreRecorded() throws Exception {
+        TestEvent outer = new TestEvent("outer", this);
+        TestEvent inner = new TestEvent("inner", this);
+        _satellite.addEventListener(outer, new EventListener(outer, this, "onNestingHandler"));
+        _satellite.addEventListener(inner, new EventListener(inner, this, "onNestingHandler"));
+
+        _satellite.dispatchEvent(outer);
+
+        DispatchMetrics.Snapshot snapshot = _metrics.snapshot();
+        assertEquals(3, snapshot.getReentrantEnqueues());
+        assertEquals(3, snapshot.getMaxQueueDepth());
+        assertEquals(3, snapshot.getDispatchCount(TestEvent.class, "inner"));
+    }
+
+    public void testNothingIsRecordedWhenOff() {
+        _satellite.setMetrics(null);
+        _satellite.dispatchEvent(new TestEvent("started", this));
+
+        assertTrue(_metrics.snapshot().getDispatchCounts().isEmpty());
+    }
+}
@@ -0,0 +1,197 @@
+package au.com.fantomdigital.fantomeventj;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import junit.framework.TestCase;
+
+public class DispatchTracerTest extends TestCase {
+    private EventDispatcher _satellite;
+    private RecordingTracer _tracer;
+
+    @Override
+    protected void setUp() throws Exception {
+        super.setUp();
+
+        _satellite = new EventDispatcher(LooperBinder.ANY, this);
+        _tracer = new RecordingTracer();
+        _satellite.setTracer(_tracer);
+    }
+
+    @Override
+    protected void tearDown() throws Exception {
+        super.tearDown();
+
+        _satellite.destroy();
+    }
+
+    private void onTestHandler(TestEvent event) {
+    }
+
+    private void onNestingHandler(TestEvent event) {
+        if (event.getName().equals("outer")) {
+            _satellite.dispatchEvent(new TestEvent("inner", this));
+        }
+    }
+
+    private TestEvent _reused;
+
+    private void onReusingHandler(TestEvent event) {
+        if (event.getName().equals("outer")) {
+            _satellite.dispatchEvent(_reused);
+        }
+    }
+
+    private void onFailingHandler(TestEvent event) {
+        throw new IllegalStateException("failed");
+    }
+
+    public void testDispatchAndInvocationAreBracketed() throws Exception {
+        TestEvent event = new TestEvent("started", this);
+        EventListener listener = new EventListener(event, this, "onTestHandler");
+        _satellite.addEventListener(event, listener);
+
+        _satellite.dispatchEvent(event);
+
+        List<RecordingTracer.Record> records = _tracer.getRecords();
+        assertEquals(kinds(RecordingTracer.Kind.DISPATCH_BEGIN, RecordingTracer.Kind.INVOKE_BEGIN,
+                RecordingTracer.Kind.INVOKE_END, RecordingTracer.Kind.DISPATCH_END), kindsOf(records));
+        assertSame(listener, records.get(1).listener);
+        assertNull(records.get(0).parent);
+        assertNull(records.get(2).failure);
+    }
+
+    public void testNestedEventNamesItsParent() throws Exception {
+        TestEvent outer = new TestEvent("outer", this);
+        TestEvent inner = new TestEvent("inner", this);
+        _satellite.addEventListener(outer, new EventListener(outer, this, "onNestingHandler"));
+        _satellite.addEventListener(inner, new EventListener(inner, this, "onNestingHandler"));
+
+        _satellite.dispatchEvent(outer);
+
+        IBaseEvent dispatched = null;
+        for (RecordingTracer.Record record : _tracer.getRecords()) {
+            if (record.kind == RecordingTracer.Kind.ENQUEUED) {
+                dispatched = record.event;
+            }
+        }
+        assertNotNull(dispatched);
+        assertEquals("inner", dispatched.getName());
+        assertSame(outer, _tracer.getParent(dispatched));
+        assertNull(_tracer.getParent(outer));
+    }
+
+    public void testReusedEventGetsADispatchEachTime() throws Exception {
+        TestEvent outer = new TestEvent("outer", this);
+        _reused = new TestEvent("inner", this);
+        _satellite.addEventListener(outer, new EventListener(outer, this, "onReusingHandler"));
+        _satellite.addEventListener(_reused, new EventListener(_reused, this, "onReusingHandler"));
+
+        _satellite.dispatchEvent(outer);
+        _satellite.dispatchEvent(_reused);
+
+        List<RecordingTracer.Record> begins = new ArrayList<RecordingTracer.Record>();
+        for (RecordingTracer.Record record : _tracer.getRecords()) {
+            if (record.kind == RecordingTracer.Kind.DISPATCH_BEGIN) {
+                begins.add(record);
+            }
+        }
+        assertEquals(3, begins.size());
+        assertSame(_reused, begins.get(1).event);
+        assertSame(_reused, begins.get(2).event);
+        assertTrue(begins.get(1).dispatchId != begins.get(2).dispatchId);
+
+        assertSame(begins.get(0), _tracer.getParent(begins.get(1)));
+        assertNull(_tracer.getParent(begins.get(2)));
+        // the latest dispatch of the reused event was at top level
+        assertNull(_tracer.getParent(_reused));
+    }
+
+    public void testOldestDispatchesAreEvicted() throws Exception {
+        RecordingTracer tracer = new RecordingTracer(1);
+        TestEvent first = new TestEvent("first", this);
+        TestEvent second = new TestEvent("second", this);
+
+        tracer.dispatchBegin(_satellite, first, null);
+        tracer.dispatchEnd(_satellite, first);
+        tracer.dispatchBegin(_satellite, second, null);
+        tracer.dispatchEnd(_satellite, second);
+        tracer.enqueued(_satellite, first, null);
+        tracer.enqueued(_satellite, second, null);
+
+        List<RecordingTracer.Record> records = tracer.getRecords();
+        assertEquals(0, records.get(4).dispatchId);
+        assertEquals(records.get(2).dispatchId, records.get(5).dispatchId);
+    }
+
+    public void testFailureIsReported() throws Exception {
+        TestEvent event = new TestEvent("failing", this);
+        _satellite.addEventListener(event, new EventListener(event, this, "onFailingHandler"));
+
+        try {
+            _satellite.dispatchEvent(event);
+            fail("Expected RuntimeException");
+        } catch (RuntimeException e) {
+            // expected
+        }
+
+        List<RecordingTracer.Record> records = _tracer.getRecords();
+        RecordingTracer.Record end = records.get(records.size() - 2);
+        assertEquals(RecordingTracer.Kind.INVOKE_END, end.kind);
+        assertTrue(end.failure instanceof IllegalStateException);
+        assertEquals(RecordingTracer.Kind.DISPATCH_END, records.get(records.size() - 1).kind);
+    }
+
+    public void testBatchDispatchesNestPerGroup() throws Exception {
+        TestEvent first = new TestEvent("started", this);
+        TestEvent second = new TestEvent("started", this);
+        TestEvent other = new TestEvent("stopped", this);
+        _satellite.addEventListener(first, new EventListener(first, this, "onTestHandler"));
+        _satellite.addEventListener(other, new EventListener(other, this, "onTestHandler"));
+
+        List<IBaseEvent> events = new ArrayList<IBaseEvent>();
+        events.add(first);
+        events.add(other);
+        events.add(second);
+        _satellite.dispatchEvents(events);
+
+        List<RecordingTracer.Record> records = _tracer.getRecords();
+        assertEquals(kinds(RecordingTracer.Kind.DISPATCH_BEGIN, RecordingTracer.Kind.DISPATCH_BEGIN,
+                RecordingTracer.Kind.INVOKE_BEGIN, RecordingTracer.Kind.INVOKE_END,
+                RecordingTracer.Kind.INVOKE_BEGIN, RecordingTracer.Kind.INVOKE_END,
+                RecordingTracer.Kind.DISPATCH_END, RecordingTracer.Kind.DISPATCH_END,
+                RecordingTracer.Kind.DISPATCH_BEGIN, RecordingTracer.Kind.INVOKE_BEGIN,
+                RecordingTracer.Kind.INVOKE_END, RecordingTracer.Kind.DISPATCH_END), kindsOf(records));
+        assertSame(first, records.get(0).event);
+        assertSame(second, records.get(1).event);
+        assertSame(second, records.get(6).event);
+        assertSame(first, records.get(7).event);
+        assertSame(other, records.get(8).event);
+    }
+
+    public void testNothingIsRecordedWhenOff() throws Exception {
+        _satellite.setTracer(null);
+        TestEvent event = new TestEvent("started", this);
+        _satellite.addEventListener(event, new EventListener(event, this, "onTestHandler"));
+
+        _satellite.dispatchEvent(event);
+
+        assertTrue(_tracer.getRecords().isEmpty());
+    }
+
+    private static List<RecordingTracer.Kind> kinds(RecordingTracer.Kind... kinds) {
+        List<RecordingTracer.Kind> list = new ArrayList<RecordingTracer.Kind>();
+        for (RecordingTracer.Kind kind : kinds) {
+            list.add(kind);
+        }
+        return list;
+    }
+
+    private static List<RecordingTracer.Kind> kindsOf(List<RecordingTracer.Record> records) {
+        List<RecordingTracer.Kind> list = new ArrayList<RecordingTracer.Kind>();
+        for (RecordingTracer.Record record : records) {
+            list.add(record.kind);
+        }
+        return list;
+    }
+}
@@ -0,0 +1,424 @@
+package au.com.fantomdigital.fantomeventj;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import junit.framework.TestCase;
+
+public class EventDispatcherTest extends TestCase {
+    private EventDispatcher _satellite;
+    private List<String> _received;
+
+    @Override
+    protected void setUp() throws Exception {
+        super.setUp();
+
+        _satellite = new EventDispatcher(LooperBinder.ANY, this);
+        _received = new ArrayList<String>();
+    }
+
+    @Override
+    protected void tearDown() throws Exception {
+        super.tearDown();
+
+        _satellite.destroy();
+    }
+
+    private void onFirstHandler(TestEvent event) {
+        _received.add("first:" + event.getName());
+    }
+
+    private void onSecondHandler(TestEvent event) {
+        _received.add("second:" + event.getName());
+    }
+
+    private void onBaseHandler(BaseEvent event) {
+        _received.add("base:" + event.getName());
+    }
+
+    private void onConsumingHandler(CancellableEvent event) {
+        _received.add("consuming:" + event.getName());
+        event.stopPropagation();
+    }
+
+    private void onCancellableHandler(CancellableEvent event) {
+        _received.add("cancellable:" + event.getName());
+    }
+
+    private void onNestingCancellableHandler(CancellableEvent event) {
+        _received.add("nesting:" + event.getName());
+        _satellite.dispatchEvent(new CancellableEvent("inner", this));
+    }
+
+    private void onFailingHandler(TestEvent event) {
+        _received.add("failing:" + event.getName());
+        _satellite.dispatchEvent(new TestEvent("stopped", this));
+        throw new IllegalStateException("failing");
+    }
+
+    private void onNestingHandler(TestEvent event) {
+        _received.add("nesting:" + event.getName());
+
+        if (event.getName().equals("outer")) {
+            for (int i = 0; i < 20; i++) {
+                _satellite.dispatchEvent(new TestEvent("inner", this));
+            }
+        }
+    }
+
+    public void testDispatchOnlyReachesMatchingName() throws Exception {
+        TestEvent started = new TestEvent("started", this);
+        TestEvent stopped = new TestEvent("stopped", this);
+
+        _satellite.addEventListener(started, new EventListener(started, this, "onFirstHandler"));
+        _satellite.addEventListener(stopped, new EventListener(stopped, this, "onSecondHandler"));
+
+        _satellite.dispatchEvent(new TestEvent("stopped", this));
+        _satellite.dispatchEvent(new TestEvent("unknown", this));
+
+        assertEquals(1, _received.size());
+        assertEquals("second:stopped", _received.get(0));
+        assertEquals(2, _satellite.countEventListeners(started));
+    }
+
+    public void testDuplicateListenerIsIgnored() throws Exception {
+        TestEvent event = new TestEvent("started", this);
+
+        _satellite.addEventListener(event, new EventListener(event, this, "onFirstHandler"));
+        _satellite.addEventListener(event, new EventListener(event, this, "onFirstHandler"));
+        _satellite.dispatchEvent(event);
+
+        assertEquals(1, _satellite.countEventListeners(event));
+        assertEquals(1, _received.size());
+    }
+
+    public void testListenersAreCalledInRegistrationOrder() throws Exception {
+        TestEvent event = new TestEvent("started", this);
+
+        _satellite.addEventListener(event, new EventListener(event, this, "onSecondHandler"));
+        _satellite.addEventListener(event, new EventListener(event, this, "onFirstHandler"));
+        _satellite.dispatchEvent(event);
+
+        assertEquals("second:started", _received.get(0));
+        assertEquals("first:started", _received.get(1));
+    }
+
+    public void testListenerIsKeyedByItsOwnEvent() throws Exception {
+        TestEvent started = new TestEvent("started", this);
+        EventListener listener = new EventListener(started, this, "onFirstHandler");
+        _satellite.addEventListener(new TestEvent("stopped", this), listener);
+
+        _satellite.dispatchEvent(new TestEvent("stopped", this));
+        _satellite.dispatchEvent(started);
+        _satellite.removeEventListener(new TestEvent("stopped", this), listener);
+        _satellite.dispatchEvent(started);
+
+        assertEquals(Arrays.asList("first:started"), _received);
+    }
+
+    public void testListenersAfterAFailureStayQueued() throws Exception {
+        TestEvent started = new TestEvent("started", this);
+        TestEvent stopped = new TestEvent("stopped", this);
+        _satellite.addEventListener(started, new EventListener(started, this, "onFailingHandler"), 1);
+        _satellite.addEventListener(started, new EventListener(started, this, "onFirstHandler"));
+        _satellite.addEventListener(stopped, new EventListener(stopped, this, "onSecondHandler"));
+
+        try {
+            _satellite.dispatchEvent(started);
+            fail("Expected RuntimeException");
+        } catch (RuntimeException e) {
+            // expected
+        }
+        assertEquals(Arrays.asList("failing:started"), _received);
+
+        // the next dispatch drains the rest of the failed one first, then what its handler dispatched
+        _satellite.dispatchEvent(new TestEvent("other", this));
+
+        assertEquals(Arrays.asList("failing:started", "first:started", "second:stopped"), _received);
+    }
+
+    public void testOverriddenEnqueueEventSeesEveryDelivery() throws Exception {
+        final List<String> enqueued = new ArrayList<String>();
+        _satellite.destroy();
+        _satellite = new EventDispatcher(LooperBinder.ANY, this) {
+            @Override protected void enqueueEvent(IBaseEvent event, EventListener listener) {
+                enqueued.add(event.getName());
+                super.enqueueEvent(event, listener);
+            }
+        };
+        TestEvent event = new TestEvent("started", this);
+        _satellite.addEventListener(event, new EventListener(event, this, "onFirstHandler"));
+        _satellite.addEventListener(event, new EventListener(event, this, "onSecondHandler"));
+
+        _satellite.dispatchEvent(event);
+
+        assertEquals(Arrays.asList("started", "started"), enqueued);
+        assertEquals(Arrays.asList("first:started", "second:started"), _received);
+    }
+
+    public void testRemovingUnknownListenerKeepsOthers() throws Exception {
+        TestEvent event = new TestEvent("started", this);
+        EventListener first = new EventListener(event, this, "onFirstHandler");
+
+        _satellite.addEventListener(event, first);
+        _satellite.removeEventListener(event, new EventListener(event, this, "onSecondHandler"));
+
+        assertEquals(1, _satellite.countEventListeners(event));
+        assertTrue(first.isValid());
+    }
+
+    public void testRemoveAllOfUnknownTypeIsIgnored() {
+        _satellite.removeAllEventListener(new TestEvent("never", this));
+
+        assertEquals(0, _satellite.countEventListeners(new TestEvent("never", this)));
+    }
+
+    public void testNestedDispatchIsDeliveredAfterCurrentEvent() throws Exception {
+        TestEvent outer = new TestEvent("outer", this);
+        TestEvent inner = new TestEvent("inner", this);
+
+        _satellite.addEventListener(outer, new EventListener(outer, this, "onNestingHandler"));
+        _satellite.addEventListener(outer, new EventListener(outer, this, "onFirstHandler"));
+        _satellite.addEventListener(inner, new EventListener(inner, this, "onSecondHandler"));
+        _satellite.dispatchEvent(outer);
+
+        assertEquals(22, _received.size());
+        assertEquals("nesting:outer", _received.get(0));
+        assertEquals("first:outer", _received.get(1));
+        for (int i = 2; i < 22; i++) {
+            assertEquals("second:inner", _received.get(i));
+        }
+    }
+
+    public void testHierarchyDispatchReachesSupertypeListeners() throws Exception {
+        BaseEvent base = new BaseEvent("started", this);
+        TestEvent event = new TestEvent("started", this);
+
+        _satellite.addEventListener(base, new EventListener(base, this, "onBaseHandler"));
+        _satellite.addEventListener(event, new EventListener(event, this, "onFirstHandler"));
+
+        _satellite.dispatchEvent(event);
+        assertEquals(1, _received.size());
+
+        _satellite.setDispatchHierarchy(true);
+        _satellite.dispatchEvent(event);
+        _satellite.dispatchEvent(new TestEvent("stopped", this));
+
+        assertEquals(3, _received.size());
+        assertEquals("first:started", _received.get(1));
+        assertEquals("base:started", _received.get(2));
+    }
+
+    public void testHierarchyCacheIsRebuiltAfterChanges() throws Exception {
+        BaseEvent base = new BaseEvent("started", this);
+        TestEvent event = new TestEvent("started", this);
+        EventListener baseListener = new EventListener(base, this, "onBaseHandler");
+
+        _satellite.setDispatchHierarchy(true);
+        _satellite.addEventListener(event, new EventListener(event, this, "onFirstHandler"));
+        _satellite.dispatchEvent(event);
+
+        _satellite.addEventListener(base, baseListener);
+        _satellite.dispatchEvent(event);
+
+        _satellite.removeEventListener(base, baseListener);
+        _satellite.dispatchEvent(event);
+
+        assertEquals(4, _received.size());
+        assertEquals("base:started", _received.get(2));
+        assertEquals("first:started", _received.get(3));
+    }
+
+    public void testDispatchEventsGroupsByClassAndName() throws Exception {
+        TestEvent started = new TestEvent("started", this);
+        TestEvent stopped = new TestEvent("stopped", this);
+        _satellite.addEventListener(started, new EventListener(started, this, "onFirstHandler"));
+        _satellite.addEventListener(stopped, new EventListener(stopped, this, "onSecondHandler"));
+
+        _satellite.dispatchEvents(Arrays.<IBaseEvent>asList(new TestEvent("started", this),
+                new TestEvent("stopped", this), new TestEvent("started", this), new BaseEvent("started", this)));
+
+        assertEquals(Arrays.asList("first:started", "first:started", "second:stopped"), _received);
+    }
+
+    public void testBatchHandlerReceivesWholeGroup() {
+        final List<Integer> batches = new ArrayList<Integer>();
+        TestEvent event = new TestEvent("sample", this);
+        _satellite.addEventListener(event, new EventListener(event, new BatchEventHandler<TestEvent>() {
+            //@Override
+            public void handleEvents(List<TestEvent> events) {
+                batches.add(events.size());
+            }
+        }));
+
+        _satellite.dispatchEvents(Arrays.<IBaseEvent>asList(new TestEvent("sample", this),
+                new TestEvent("sample", this), new TestEvent("sample", this)));
+        _satellite.dispatchEvent(new TestEvent("sample", this));
+
+        assertEquals(Arrays.asList(3, 1), batches);
+    }
+
+    public void testBatchAfterAFailureStaysQueued() throws Exception {
+        TestEvent started = new TestEvent("started", this);
+        TestEvent other = new TestEvent("other", this);
+        TestEvent stopped = new TestEvent("stopped", this);
+        _satellite.addEventListener(started, new EventListener(started, this, "onFailingHandler"), 1);
+        _satellite.addEventListener(started, new EventListener(started, this, "onFirstHandler"));
+        _satellite.addEventListener(other, new EventListener(other, this, "onSecondHandler"));
+        _satellite.addEventListener(stopped, new EventListener(stopped, this, "onSecondHandler"));
+
+        try {
+            _satellite.dispatchEvents(Arrays.<IBaseEvent>asList(started, other));
+            fail("Expected RuntimeException");
+        } catch (RuntimeException e) {
+            // expected
+        }
+        assertEquals(Arrays.asList("failing:started"), _received);
+
+        // the next dispatch drains the rest of the failed batch first, then what its handler dispatched
+        _satellite.dispatchEvent(new TestEvent("ping", this));
+
+        assertEquals(Arrays.asList("failing:started", "first:started", "second:other", "second:stopped"), _received);
+    }
+
+    public void testOverriddenEnqueueEventSeesEveryBatchDelivery() throws Exception {
+        final List<String> enqueued = new ArrayList<String>();
+        _satellite.destroy();
+        _satellite = new EventDispatcher(LooperBinder.ANY, this) {
+            @Override protected void enqueueEvent(IBaseEvent event, EventListener listener) {
+                enqueued.add(event.getName());
+                super.enqueueEvent(event, listener);
+            }
+        };
+        TestEvent started = new TestEvent("started", this);
+        TestEvent stopped = new TestEvent("stopped", this);
+        _satellite.addEventListener(started, new EventListener(started, this, "onFirstHandler"));
+        _satellite.addEventListener(stopped, new EventListener(stopped, this, "onSecondHandler"));
+
+        _satellite.dispatchEvents(Arrays.<IBaseEvent>asList(started, stopped, new TestEvent("started", this)));
+
+        assertEquals(Arrays.asList("started", "started", "stopped"), enqueued);
+        assertEquals(Arrays.asList("first:started", "first:started", "second:stopped"), _received);
+    }
+
+    public void testNestedDispatchEventsIsQueued() throws Exception {
+        TestEvent outer = new TestEvent("outer", this);
+        TestEvent inner = new TestEvent("inner", this);
+        _satellite.addEventListener(outer, new EventListener(outer, this, "onNestingHandler"));
+        _satellite.addEventListener(inner, new EventListener(inner, this, "onFirstHandler"));
+
+        _satellite.dispatchEvents(Arrays.<IBaseEvent>asList(outer, new TestEvent("inner", this)));
+
+        assertEquals(22, _received.size());
+        assertEquals("nesting:outer", _received.get(0));
+        assertEquals("first:inner", _received.get(1));
+    }
+
+    public void testConflationKeepsLatestPendingEvent() throws Exception {
+        _satellite.setConflationKey(ConflationKey.CLASS_AND_NAME);
+        TestEvent outer = new TestEvent("outer", this);
+        TestEvent inner = new TestEvent("inner", this);
+        _satellite.addEventListener(outer, new EventListener(outer, this, "onNestingHandler"));
+        _satellite.addEventListener(inner, new EventListener(inner, this, "onFirstHandler"));
+
+        _satellite.dispatchEvent(outer);
+
+        assertEquals(Arrays.asList("nesting:outer", "first:inner"), _received);
+        assertEquals(19, _satellite.countConflatedEvents());
+    }
+
+    public void testFullQueueDropsNewestEvents() throws Exception {
+        _satellite.setQueueCapacity(5, OverflowPolicy.DROP_NEWEST);
+        TestEvent outer = new TestEvent("outer", this);
+        TestEvent inner = new TestEvent("inner", this);
+        _satellite.addEventListener(outer, new EventListener(outer, this, "onNestingHandler"));
+        _satellite.addEventListener(inner, new EventListener(inner, this, "onFirstHandler"));
+
+        _satellite.dispatchEvent(outer);
+
+        assertEquals(6, _received.size());
+        assertEquals(15, _satellite.countDroppedEvents());
+        assertEquals(5, _satellite.getQueueHighWaterMark());
+    }
+
+    public void testFullQueueFailsFast() throws Exception {
+        _satellite.setQueueCapacity(5, OverflowPolicy.FAIL_FAST);
+        TestEvent outer = new TestEvent("outer", this);
+        TestEvent inner = new TestEvent("inner", this);
+        _satellite.addEventListener(outer, new EventListener(outer, this, "onNestingHandler"));
+        _satellite.addEventListener(inner, new EventListener(inner, this, "onFirstHandler"));
+
+        try {
+            _satellite.dispatchEvent(outer);
+            fail("Expected RuntimeException");
+        } catch (RuntimeException e) {
+            assertTrue(e.getCause() instanceof IllegalStateException);
+        }
+    }
+
+    public void testFullQueueCallsOverflowHandler() throws Exception {
+        final List<String> overflowed = new ArrayList<String>();
+        _satellite = new EventDispatcher(LooperBinder.ANY, this) {
+            @Override protected void onQueueOverflow(IBaseEvent event, EventListener listener) {
+                overflowed.add(event.getName());
+            }
+        };
+        _satellite.setQueueCapacity(19, OverflowPolicy.CALL_HANDLER);
+        TestEvent outer = new TestEvent("outer", this);
+        TestEvent inner = new TestEvent("inner", this);
+        _satellite.addEventListener(outer, new EventListener(outer, this, "onNestingHandler"));
+        _satellite.addEventListener(inner, new EventListener(inner, this, "onFirstHandler"));
+
+        _satellite.dispatchEvent(outer);
+
+        assertEquals(Arrays.asList("inner"), overflowed);
+        assertEquals(20, _received.size());
+    }
+
+    public void testHigherPriorityListenersAreCalledFirst() throws Exception {
+        TestEvent event = new TestEvent("started", this);
+
+        _satellite.addEventListener(event, new EventListener(event, this, "onFirstHandler"));
+        _satellite.addEventListener(event, new EventListener(event, this, "onSecondHandler"), 10);
+        _satellite.addEventListener(event, new EventListener(event, this, "onNestingHandler"), 10);
+        _satellite.dispatchEvent(event);
+
+        assertEquals(Arrays.asList("second:started", "nesting:started", "first:started"), _received);
+    }
+
+    public void testHierarchyDispatchMergesByPriority() throws Exception {
+        _satellite.setDispatchHierarchy(true);
+        TestEvent event = new TestEvent("started", this);
+        BaseEvent base = new BaseEvent("started", this);
+
+        _satellite.addEventListener(event, new EventListener(event, this, "onFirstHandler"));
+        _satellite.addEventListener(base, new EventListener(base, this, "onBaseHandler"), 1);
+        _satellite.dispatchEvent(event);
+
+        assertEquals(Arrays.asList("base:started", "first:started"), _received);
+    }
+
+    public void testStoppedEventSkipsRemainingListeners() throws Exception {
+        CancellableEvent event = new CancellableEvent("started", this);
+        _satellite.addEventListener(event, new EventListener(event, this, "onCancellableHandler"));
+        _satellite.addEventListener(event, new EventListener(event, this, "onConsumingHandler"), 1);
+
+        _satellite.dispatchEvent(event);
+
+        assertTrue(event.isPropagationStopped());
+        assertEquals(Arrays.asList("consuming:started"), _received);
+    }
+
+    public void testStoppedEventSkipsQueuedDeliveries() throws Exception {
+        CancellableEvent outer = new CancellableEvent("outer", this);
+        CancellableEvent inner = new CancellableEvent("inner", this);
+        _satellite.addEventListener(outer, new EventListener(outer, this, "onNestingCancellableHandler"));
+        _satellite.addEventListener(inner, new EventListener(inner, this, "onConsumingHandler"));
+        _satellite.addEventListener(inner, new EventListener(inner, this, "onCancellableHandler"));
+
+        _satellite.dispatchEvent(outer);
+
+        assertEquals(Arrays.asList("nesting:outer", "consuming:inner"), _received);
+    }
+}
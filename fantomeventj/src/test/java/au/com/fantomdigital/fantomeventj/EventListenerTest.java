@@ -0,0 +1,122 @@
+package au.com.fantomdigital.fantomeventj;
+
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+
+import junit.framework.TestCase;
+
+public class EventListenerTest extends TestCase {
+    private static int _staticHandled;
+    private int _handled;
+
+    @Override
+    protected void setUp() throws Exception {
+        super.setUp();
+
+        _handled = 0;
+        _staticHandled = 0;
+    }
+
+    private void onTestHandler(TestEvent event) {
+        _handled ++;
+    }
+
+    private static void onStaticHandler(TestEvent event) {
+        _staticHandled ++;
+    }
+
+    private void onFailingHandler(TestEvent event) {
+        throw new IllegalArgumentException("failing");
+    }
+
+    private void onErrorHandler(TestEvent event) {
+        throw new AssertionError("error");
+    }
+
+    public void testHandleEventCallsTarget() throws Exception {
+        TestEvent event = new TestEvent("TestEvent", this);
+        EventListener listener = new EventListener(event, this, "onTestHandler");
+
+        listener.handleEvent(event);
+        listener.handleEvent(event);
+
+        assertEquals(2, _handled);
+    }
+
+    public void testHandleEventCallsStaticMethod() throws Exception {
+        TestEvent event = new TestEvent("TestEvent", this);
+        EventListener listener = new EventListener(event, this, "onStaticHandler");
+
+        listener.handleEvent(event);
+
+        assertEquals(1, _staticHandled);
+    }
+
+    public void testHandleEventWrapsExceptions() throws Exception {
+        TestEvent event = new TestEvent("TestEvent", this);
+        EventListener listener = new EventListener(event, this, "onFailingHandler");
+
+        try {
+            listener.handleEvent(event);
+            fail("Expected InvocationTargetException");
+        } catch (InvocationTargetException e) {
+            assertTrue(e.getCause() instanceof IllegalArgumentException);
+        }
+    }
+
+    public void testHandleEventPropagatesErrors() throws Exception {
+        TestEvent event = new TestEvent("TestEvent", this);
+        EventListener listener = new EventListener(event, this, "onErrorHandler");
+
+        try {
+            listener.handleEvent(event);
+            fail("Expected AssertionError");
+        } catch (AssertionError e) {
+            assertEquals("error", e.getMessage());
+        }
+    }
+
+    public void testInvalidatedListenerRefusesEvents() throws Exception {
+        TestEvent event = new TestEvent("TestEvent", this);
+        EventListener listener = new EventListener(event, this, "onTestHandler");
+        listener.invalidate();
+
+        try {
+            listener.handleEvent(event);
+            fail("Expected IllegalStateException");
+        } catch (IllegalStateException e) {
+            assertEquals(0, _handled);
+        }
+    }
+
+    public void testFallbackInvokersMatchGeneratedInvoker() throws Throwable {
+        TestEvent event = new TestEvent("TestEvent", this);
+        Method method = getClass().getDeclaredMethod("onTestHandler", TestEvent.class);
+        method.setAccessible(true);
+
+        EventInvokers.MethodHandleInvokers.factory(method).bind(this).invoke(event);
+        new EventInvokers.ReflectiveInvoker(this, method).invoke(event);
+
+        assertEquals(2, _handled);
+    }
+
+    public void testStrategyIsResolvedOncePerMethod() throws Exception {
+        Method method = getClass().getDeclaredMethod("onTestHandler", TestEvent.class);
+        method.setAccessible(true);
+
+        assertSame(EventInvokers.factory(method), EventInvokers.factory(method));
+    }
+
+    public void testReflectiveInvokerUnwrapsCause() throws Throwable {
+        TestEvent event = new TestEvent("TestEvent", this);
+        Method method = getClass().getDeclaredMethod("onFailingHandler", TestEvent.class);
+        method.setAccessible(true);
+
+        try {
+            new EventInvokers.ReflectiveInvoker(this, method).invoke(event);
+            fail("Expected IllegalArgumentException");
+        } catch (IllegalArgumentException e) {
+            assertEquals("failing", e.getMessage());
+        }
+    }
+}
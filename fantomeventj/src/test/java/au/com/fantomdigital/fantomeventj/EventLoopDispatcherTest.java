@@ -0,0 +1,169 @@
+package au.com.fantomdigital.fantomeventj;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import junit.framework.TestCase;
+
+public class EventLoopDispatcherTest extends TestCase {
+    private static final int PRODUCERS = 4;
+    private static final int EVENTS = 5000;
+
+    private EventLoopDispatcher _satellite;
+    private final List<String> _received = new ArrayList<String>();
+
+    @Override
+    protected void setUp() throws Exception {
+        super.setUp();
+
+        _satellite = new EventLoopDispatcher(this);
+    }
+
+    @Override
+    protected void tearDown() throws Exception {
+        super.tearDown();
+
+        _satellite.destroy();
+    }
+
+    private void onNestingHandler(TestEvent event) {
+        _received.add(event.getName());
+        if (event.getName().equals("outer")) {
+            _satellite.dispatchEvent(new TestEvent("inner", this));
+            _received.add("dispatched");
+        }
+    }
+
+    public void testEventsFromManyProducersAreDeliveredOnTheConsumer() throws Exception {
+        AsyncEventDispatcherTest.SequenceEvent event = new AsyncEventDispatcherTest.SequenceEvent(0, this);
+        final Recorder recorder = new Recorder();
+        _satellite.addEventListener(event, new EventListener(event, recorder, "onSequence"));
+        _satellite.start();
+
+        Thread[] producers = new Thread[PRODUCERS];
+        for (int p = 0; p < PRODUCERS; p++) {
+            final int producer = p;
+            producers[p] = new Thread() {
+                @Override public void run() {
+                    for (int i = 0; i < EVENTS; i++) {
+                        _satellite.dispatchEvent(new AsyncEventDispatcherTest.SequenceEvent(
+                                producer * EVENTS + i, EventLoopDispatcherTest.this));
+                    }
+                }
+            };
+            producers[p].start();
+        }
+        for (Thread producer : producers) {
+            producer.join();
+        }
+
+        assertTrue(_satellite.awaitQuiescence(10, TimeUnit.SECONDS));
+        assertEquals(PRODUCERS * EVENTS, recorder.sequences.size());
+        assertEquals(1, recorder.threads.size());
+
+        // each producer's events keep their order
+        int[] last = new int[PRODUCERS];
+        Arrays.fill(last, -1);
+        for (int sequence : recorder.sequences) {
+            int producer = sequence / EVENTS;
+            assertTrue(sequence > last[producer]);
+            last[producer] = sequence;
+        }
+    }
+
+    public void testNestedDispatchIsDeliveredAfterCurrentEvent() throws Exception {
+        TestEvent outer = new TestEvent("outer", this);
+        TestEvent inner = new TestEvent("inner", this);
+        _satellite.addEventListener(outer, new EventListener(outer, this, "onNestingHandler"));
+        _satellite.addEventListener(inner, new EventListener(inner, this, "onNestingHandler"));
+
+        _satellite.dispatchEvent(outer);
+
+        assertEquals(2, _satellite.drain());
+        assertEquals(Arrays.asList("outer", "dispatched", "inner"), _received);
+    }
+
+    public void testOnlyTheConsumerMayDrain() throws Exception {
+        _satellite.start();
+
+        try {
+            _satellite.drain();
+            fail("Expected IllegalStateException");
+        } catch (IllegalStateException e) {
+            // expected
+        }
+    }
+
+    public void testHaltDeliversPendingEvents() throws Exception {
+        AsyncEventDispatcherTest.SequenceEvent event = new AsyncEventDispatcherTest.SequenceEvent(0, this);
+        Recorder recorder = new Recorder();
+        _satellite.addEventListener(event, new EventListener(event, recorder, "onSequence"));
+        for (int i = 0; i < 100; i++) {
+            _satellite.dispatchEvent(new AsyncEventDispatcherTest.SequenceEvent(i, this));
+        }
+
+        _satellite.start();
+        _satellite.halt();
+
+        assertEquals(100, recorder.sequences.size());
+    }
+
+    public void testConsumerSurvivesHandlerErrors() throws Exception {
+        final List<RuntimeException> failures = new ArrayList<RuntimeException>();
+        EventLoopDispatcher satellite = new EventLoopDispatcher(DispatchExecutors.daemonThreads("loop-test"),
+                LooperBinder.ANY, "loop", this) {
+            @Override protected void onDeliveryFailure(IBaseEvent event, EventListener listener, RuntimeException e) {
+                failures.add(e);
+            }
+        };
+        try {
+            AsyncEventDispatcherTest.SequenceEvent event = new AsyncEventDispatcherTest.SequenceEvent(0, this);
+            Recorder recorder = new Recorder();
+            satellite.addEventListener(event, new EventListener(event, recorder, "onErrorThenSequence"));
+            satellite.start();
+
+            for (int i = 0; i < 100; i++) {
+                satellite.dispatchEvent(new AsyncEventDispatcherTest.SequenceEvent(i, this));
+            }
+
+            assertTrue(satellite.awaitQuiescence(10, TimeUnit.SECONDS));
+            assertEquals(90, recorder.sequences.size());
+            assertEquals(10, failures.size());
+            assertTrue(failures.get(0).getCause() instanceof AssertionError);
+        } finally {
+            satellite.destroy();
+        }
+    }
+
+    public void testStickyEventIsReplayedOnTheConsumer() throws Exception {
+        _satellite.dispatchStickyEvent(new TestEvent("outer", this));
+        TestEvent event = new TestEvent("outer", this);
+
+        _satellite.addEventListener(event, new EventListener(event, this, "onNestingHandler"));
+
+        assertTrue(_received.isEmpty());
+        assertEquals(1, _satellite.drain());
+        assertEquals(Arrays.asList("outer", "dispatched"), _received);
+    }
+
+    static class Recorder {
+        final List<Integer> sequences = new ArrayList<Integer>();
+        final List<Thread> threads = new ArrayList<Thread>();
+
+        void onSequence(AsyncEventDispatcherTest.SequenceEvent event) {
+            sequences.add(event.sequence);
+            if (!threads.contains(Thread.currentThread())) {
+                threads.add(Thread.currentThread());
+            }
+        }
+
+        void onErrorThenSequence(AsyncEventDispatcherTest.SequenceEvent event) {
+            if (event.sequence % 10 == 0) {
+                throw new AssertionError("handler error " + event.sequence);
+            }
+            sequences.add(event.sequence);
+        }
+    }
+}
@@ -0,0 +1,92 @@
+package au.com.fantomdigital.fantomeventj;
+
+import junit.framework.TestCase;
+
+public class EventQueueTest extends TestCase {
+
+    private void onTestHandler(TestEvent event) {
+    }
+
+    public void testFifoOrderSurvivesWrapAndGrowth() throws Exception {
+        EventQueue queue = new EventQueue();
+        EventListener listener = new EventListener(new TestEvent("TestEvent", this), this, "onTestHandler");
+        TestEvent[] events = new TestEvent[100];
+        for (int i = 0; i < events.length; i++) {
+            events[i] = new TestEvent("TestEvent" + i, this);
+        }
+
+        // move the head forward so growth has to unwrap the ring
+        for (int i = 0; i < 10; i++) {
+            queue.offer(events[i], listener);
+        }
+        for (int i = 0; i < 10; i++) {
+            assertSame(events[i], queue.peekEvent());
+            assertSame(listener, queue.poll());
+        }
+
+        for (int i = 0; i < events.length; i++) {
+            queue.offer(events[i], listener);
+        }
+        assertEquals(events.length, queue.size());
+
+        for (int i = 0; i < events.length; i++) {
+            assertSame(events[i], queue.peekEvent());
+            queue.poll();
+        }
+        assertTrue(queue.isEmpty());
+    }
+
+    public void testOfferFirstGoesAheadOfQueuedPairs() throws Exception {
+        EventQueue queue = new EventQueue();
+        EventListener listener = new EventListener(new TestEvent("TestEvent", this), this, "onTestHandler");
+        TestEvent queued = new TestEvent("queued", this);
+        TestEvent first = new TestEvent("first", this);
+
+        queue.offer(queued, listener);
+        queue.offerFirst(first, listener);
+
+        assertSame(first, queue.peekEvent());
+        queue.poll();
+        assertSame(queued, queue.peekEvent());
+    }
+
+    public void testReplaceFindsPendingPairsAcrossPollsAndGrowth() throws Exception {
+        EventQueue queue = new EventQueue();
+        EventListener[] listeners = new EventListener[3];
+        for (int i = 0; i < listeners.length; i++) {
+            listeners[i] = new EventListener(new TestEvent("TestEvent", this), this, "onTestHandler");
+        }
+
+        for (int i = 0; i < 200; i++) {
+            queue.offer(new TestEvent("TestEvent", this), listeners[i % listeners.length], i % 50);
+        }
+        for (int i = 0; i < 100; i++) {
+            queue.poll();
+        }
+
+        // pairs 0 to 99 are gone, key 7 of listener 1 is now only held by pair 157
+        TestEvent replacement = new TestEvent("TestEvent", this);
+        assertTrue(queue.replace(replacement, listeners[1], 7));
+        assertFalse(queue.replace(replacement, listeners[0], 7));
+        for (int i = 100; i < 157; i++) {
+            queue.poll();
+        }
+        assertSame(replacement, queue.peekEvent());
+        assertSame(listeners[1], queue.poll());
+        assertFalse(queue.replace(replacement, listeners[1], 7));
+    }
+
+    public void testClassAndNameIsComparedWithoutKeys() throws Exception {
+        EventQueue queue = new EventQueue();
+        EventListener listener = new EventListener(new TestEvent("TestEvent", this), this, "onTestHandler");
+        Object key = ConflationKey.CLASS_AND_NAME;
+
+        queue.offer(new TestEvent("started", this), listener, key);
+        queue.offer(new TestEvent("stopped", this), listener, key);
+        TestEvent latest = new TestEvent("started", this);
+
+        assertTrue(queue.replace(latest, listener, key));
+        assertFalse(queue.replace(new TestEvent("paused", this), listener, key));
+        assertSame(latest, queue.peekEvent());
+    }
+}
@@ -0,0 +1,182 @@
+package au.com.fantomdigital.fantomeventj;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinWorkerThread;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import junit.framework.TestCase;
+
+public class FanOutTest extends TestCase {
+    private static final int LISTENERS = 64;
+
+    private EventDispatcher _satellite;
+    private ForkJoinPool _pool;
+    private final AtomicInteger _handled = new AtomicInteger();
+    private final AtomicInteger _onPool = new AtomicInteger();
+
+    @Override
+    protected void setUp() throws Exception {
+        super.setUp();
+
+        _satellite = new EventDispatcher(LooperBinder.ANY, this);
+        _pool = new ForkJoinPool(4);
+        _satellite.setFanOut(_pool, 8);
+    }
+
+    @Override
+    protected void tearDown() throws Exception {
+        super.tearDown();
+
+        _satellite.destroy();
+        _pool.shutdown();
+    }
+
+    public void testThreadSafeListenersRunOnThePool() throws Exception {
+        TestEvent event = new TestEvent("config", this);
+        for (int i = 0; i < LISTENERS; i++) {
+            _satellite.addEventListener(event, new EventListener(event, new Handler(i), "onEvent").threadSafe());
+        }
+
+        _satellite.dispatchEvent(event);
+
+        assertEquals(LISTENERS, _handled.get());
+        assertTrue(_onPool.get() > 0);
+    }
+
+    public void testDispatchWaitsForTheRunBeforeLaterListeners() throws Exception {
+        TestEvent event = new TestEvent("config", this);
+        for (int i = 0; i < LISTENERS; i++) {
+            _satellite.addEventListener(event, new EventListener(event, new Handler(i), "onEvent").threadSafe(), 1);
+        }
+        Handler last = new Handler(-1);
+        _satellite.addEventListener(event, new EventListener(event, last, "onLast"));
+
+        _satellite.dispatchEvent(event);
+
+        assertEquals(LISTENERS, last.seen);
+    }
+
+    public void testBatchDispatchFansOut() throws Exception {
+        TestEvent event = new TestEvent("config", this);
+        for (int i = 0; i < LISTENERS; i++) {
+            _satellite.addEventListener(event, new EventListener(event, new Handler(i), "onEvent").threadSafe());
+        }
+
+        List<IBaseEvent> events = new ArrayList<IBaseEvent>();
+        events.add(event);
+        events.add(new TestEvent("config", this));
+        _satellite.dispatchEvents(events);
+
+        assertEquals(2 * LISTENERS, _handled.get());
+        assertTrue(_onPool.get() > 0);
+    }
+
+    public void testHandlersOnThePoolKeepTheTraceParent() throws Exception {
+        final EventDispatcher traced = new EventDispatcher(LooperBinder.ANY, "traced", this);
+        final EventDispatcher sink = new EventDispatcher(LooperBinder.ANY, "sink", this);
+        RecordingTracer tracer = new RecordingTracer();
+        traced.setTracer(tracer);
+        sink.setTracer(tracer);
+        try {
+            final TestEvent config = new TestEvent("config", this);
+            for (int i = 0; i < LISTENERS; i++) {
+                _satellite.addEventListener(config, new EventListener(config, new Object() {
+                    void onEvent(TestEvent event) {
+                        sink.dispatchEvent(new TestEvent("changed", this));
+                    }
+                }, "onEvent").threadSafe());
+            }
+            TestEvent start = new TestEvent("start", this);
+            traced.addEventListener(start, new EventListener(start, new Object() {
+                void onEvent(TestEvent event) {
+                    // the fanning dispatcher does not trace, the sink still names the traced event
+                    _satellite.dispatchEvent(config);
+                }
+            }, "onEvent"));
+
+            traced.dispatchEvent(start);
+
+            int changed = 0;
+            for (RecordingTracer.Record record : tracer.getRecords()) {
+                if (record.kind == RecordingTracer.Kind.DISPATCH_BEGIN && record.dispatcher == sink) {
+                    assertSame(start, record.parent);
+                    changed++;
+                }
+            }
+            assertEquals(LISTENERS, changed);
+        } finally {
+            traced.destroy();
+            sink.destroy();
+        }
+    }
+
+    public void testFailuresAreAggregated() throws Exception {
+        TestEvent event = new TestEvent("config", this);
+        for (int i = 0; i < LISTENERS; i++) {
+            String method = i % 16 == 0 ? "onFailure" : "onEvent";
+            _satellite.addEventListener(event, new EventListener(event, new Handler(i), method).threadSafe());
+        }
+
+        try {
+            _satellite.dispatchEvent(event);
+            fail("Expected RuntimeException");
+        } catch (RuntimeException e) {
+            assertEquals(LISTENERS / 16 - 1, e.getSuppressed().length);
+        }
+        assertEquals(LISTENERS - LISTENERS / 16, _handled.get());
+    }
+
+    public void testShortRunStaysOnTheCallingThread() throws Exception {
+        TestEvent event = new TestEvent("config", this);
+        for (int i = 0; i < 8; i++) {
+            _satellite.addEventListener(event, new EventListener(event, new Handler(i), "onEvent").threadSafe());
+        }
+
+        _satellite.dispatchEvent(event);
+
+        assertEquals(8, _handled.get());
+        assertEquals(0, _onPool.get());
+    }
+
+    public void testUnmarkedListenersAreNotFannedOut() throws Exception {
+        TestEvent event = new TestEvent("config", this);
+        for (int i = 0; i < LISTENERS; i++) {
+            _satellite.addEventListener(event, new EventListener(event, new Handler(i), "onEvent"));
+        }
+
+        _satellite.dispatchEvent(event);
+
+        assertEquals(LISTENERS, _handled.get());
+        assertEquals(0, _onPool.get());
+    }
+
+    class Handler {
+        private final int _id;
+        int seen;
+
+        Handler(int id) {
+            _id = id;
+        }
+
+        void onEvent(TestEvent event) {
+            if (Thread.currentThread() instanceof ForkJoinWorkerThread) {
+                _onPool.incrementAndGet();
+            }
+            _handled.incrementAndGet();
+        }
+
+        void onFailure(TestEvent event) {
+            throw new IllegalStateException("listener " + _id + " failed");
+        }
+
+        void onLast(TestEvent event) {
+            seen = _handled.get();
+        }
+
+        @Override public String toString() {
+            return "handler " + _id;
+        }
+    }
+}
@@ -0,0 +1,129 @@
+package au.com.fantomdigital.fantomeventj;
+
+import junit.framework.TestCase;
+
+public class ListenerBucketTest extends TestCase {
+    private final TestEvent _event = new TestEvent("TestEvent", this);
+
+    private void onTestHandler(TestEvent event) {
+    }
+
+    private EventListener listener(Object target, int priority) throws NoSuchMethodException {
+        return new EventListener(_event, new Handler(target), "onTestHandler").withPriority(priority);
+    }
+
+    public void testEquivalentListenerIsAddedOnce() throws Exception {
+        ListenerBucket bucket = new ListenerBucket();
+        EventListener listener = new EventListener(_event, this, "onTestHandler");
+
+        assertTrue(bucket.add(listener));
+        assertFalse(bucket.add(new EventListener(_event, this, "onTestHandler")));
+        assertEquals(1, bucket.size());
+        assertEquals(1, bucket.snapshot().size());
+    }
+
+    public void testSnapshotIsSortedByPriorityThenRegistration() throws Exception {
+        ListenerBucket bucket = new ListenerBucket();
+        EventListener low = listener("low", 0);
+        EventListener first = listener("first", 5);
+        EventListener second = listener("second", 5);
+        bucket.add(low);
+        bucket.add(first);
+        bucket.add(second);
+
+        ListenerSnapshot snapshot = bucket.snapshot();
+
+        assertSame(first, snapshot.get(0));
+        assertSame(second, snapshot.get(1));
+        assertSame(low, snapshot.get(2));
+    }
+
+    public void testRemovedListenersAreTombstonedThenCompacted() throws Exception {
+        ListenerBucket bucket = new ListenerBucket();
+        EventListener[] listeners = new EventListener[4];
+        for (int i = 0; i < listeners.length; i++) {
+            listeners[i] = listener(Integer.valueOf(i), 0);
+            bucket.add(listeners[i]);
+        }
+        ListenerSnapshot before = bucket.snapshot();
+
+        assertSame(listeners[0], bucket.remove(listeners[0]));
+        assertFalse(listeners[0].isValid());
+        assertSame(before, bucket.snapshot());
+        assertEquals(3, bucket.size());
+
+        bucket.remove(listeners[1]);
+        bucket.remove(listeners[2]);
+
+        ListenerSnapshot after = bucket.snapshot();
+        assertEquals(1, after.size());
+        assertSame(listeners[3], after.get(0));
+    }
+
+    public void testAddPublishesTheSnapshotWithoutTombstones() throws Exception {
+        ListenerBucket bucket = new ListenerBucket();
+        EventListener removed = listener("removed", 0);
+        EventListener kept = listener("kept", 0);
+        bucket.add(removed);
+        bucket.add(kept);
+        bucket.remove(removed);
+        assertEquals(2, bucket.snapshot().size());
+
+        EventListener high = listener("high", 1);
+        bucket.add(high);
+
+        // published by the writer, reads only see the new view
+        ListenerSnapshot snapshot = bucket.snapshot();
+        assertSame(snapshot, bucket.snapshot());
+        assertEquals(2, snapshot.size());
+        assertSame(high, snapshot.get(0));
+        assertSame(kept, snapshot.get(1));
+    }
+
+    public void testAppendLeavesPublishedSnapshotsUnchanged() throws Exception {
+        ListenerBucket bucket = new ListenerBucket();
+        EventListener first = listener("first", 5);
+        bucket.add(first);
+        ListenerSnapshot before = bucket.snapshot();
+
+        EventListener[] listeners = new EventListener[20];
+        for (int i = 0; i < listeners.length; i++) {
+            listeners[i] = listener(Integer.valueOf(i), i < 10 ? 5 : 0);
+            bucket.add(listeners[i]);
+        }
+
+        assertEquals(1, before.size());
+        assertSame(first, before.get(0));
+        ListenerSnapshot after = bucket.snapshot();
+        assertEquals(21, after.size());
+        assertSame(first, after.get(0));
+        for (int i = 0; i < listeners.length; i++) {
+            assertSame(listeners[i], after.get(i + 1));
+        }
+    }
+
+    public void testRemoveIdenticalIgnoresEquivalentInstances() throws Exception {
+        ListenerBucket bucket = new ListenerBucket();
+        EventListener registered = new EventListener(_event, this, "onTestHandler");
+        bucket.add(registered);
+
+        assertFalse(bucket.removeIdentical(new EventListener(_event, this, "onTestHandler")));
+        assertTrue(bucket.removeIdentical(registered));
+        assertEquals(0, bucket.size());
+    }
+
+    static class Handler {
+        private final Object _name;
+
+        Handler(Object name) {
+            _name = name;
+        }
+
+        void onTestHandler(TestEvent event) {
+        }
+
+        @Override public String toString() {
+            return String.valueOf(_name);
+        }
+    }
+}
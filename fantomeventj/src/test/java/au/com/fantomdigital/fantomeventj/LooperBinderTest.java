@@ -1,5 +1,8 @@
 package au.com.fantomdigital.fantomeventj;
 
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+
 import junit.framework.TestCase;
 
 public class LooperBinderTest extends TestCase {
@@ -141,4 +144,61 @@ public class LooperBinderTest extends TestCase {
             assertFalse(true);
         }
     }
-}
\ No newline at end of file
+
+    public void testCurrentThreadBinderRejectsOtherThreads() throws InterruptedException {
+        final EventDispatcher satellite = new EventDispatcher("confined", this);
+        final Throwable[] failure = new Throwable[1];
+
+        satellite.countEventListeners(new TestEvent("TestEvent", this));
+
+        Thread other = new Thread() {
+            @Override public void run() {
+                try {
+                    satellite.countEventListeners(new TestEvent("TestEvent", this));
+                } catch (IllegalStateException e) {
+                    failure[0] = e;
+                }
+            }
+        };
+        other.start();
+        other.join();
+
+        assertNotNull(failure[0]);
+    }
+
+    public void testExecutorThreadBinderAcceptsExecutorThread() throws Exception {
+        ExecutorService executor = DispatchExecutors.singleThread("binder-test");
+        try {
+            final LooperBinder binder = LooperBinders.executorThread(executor);
+            final EventDispatcher satellite = new EventDispatcher(binder, this);
+
+            try {
+                satellite.countEventListeners(new TestEvent("TestEvent", this));
+                fail("Expected IllegalStateException");
+            } catch (IllegalStateException e) {
+                // expected, the test thread is not the executor thread
+            }
+
+            int count = executor.submit(new Callable<Integer>() {
+                public Integer call() {
+                    return satellite.countEventListeners(new TestEvent("TestEvent", this));
+                }
+            }).get();
+            assertEquals(0, count);
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    public void testBindPolicyIsResolvedFromBinder() {
+        assertEquals(BindPolicy.CUSTOM, _satellite.getBindPolicy());
+        assertEquals(BindPolicy.ANY, new EventDispatcher(LooperBinder.ANY, this).getBindPolicy());
+        assertEquals(BindPolicy.THREAD, new EventDispatcher("confined", this).getBindPolicy());
+    }
+
+    public void testCustomBinderIsCalledOnDispatch() {
+        _satellite.dispatchEvent(new TestEvent("TestEvent", this));
+
+        assertTrue(_enforcer.called);
+    }
+}
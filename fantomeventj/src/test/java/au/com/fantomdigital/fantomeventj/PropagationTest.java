@@ -0,0 +1,169 @@
+package au.com.fantomdigital.fantomeventj;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import junit.framework.TestCase;
+
+public class PropagationTest extends TestCase {
+    private EventDispatcher _root;
+    private EventDispatcher _panel;
+    private EventDispatcher _button;
+    private List<String> _received;
+
+    @Override
+    protected void setUp() throws Exception {
+        super.setUp();
+
+        _root = new EventDispatcher(LooperBinder.ANY, "root", this);
+        _panel = new EventDispatcher(LooperBinder.ANY, "panel", this);
+        _button = new EventDispatcher(LooperBinder.ANY, "button", this);
+        _panel.setParent(_root);
+        _button.setParent(_panel);
+        _received = new ArrayList<String>();
+    }
+
+    @Override
+    protected void tearDown() throws Exception {
+        super.tearDown();
+
+        _root.destroy();
+        _panel.destroy();
+        _button.destroy();
+    }
+
+    public void testEventIsCapturedThenBubbled() throws Exception {
+        listen(_root, "root");
+        listen(_panel, "panel");
+        listen(_button, "button");
+
+        _button.propagateEvent(new TestEvent("click", this));
+
+        assertEquals(Arrays.asList("capture:root", "capture:panel", "button", "panel", "root"), _received);
+    }
+
+    public void testStoppedEventDoesNotBubble() throws Exception {
+        CancellableEvent click = new CancellableEvent("click", this);
+        _root.addEventListener(click, new Recorder("root", _received).listener(click, "onCancellable"));
+        _panel.addEventListener(click, new Recorder("panel", _received).listener(click, "onConsume"));
+
+        _button.propagateEvent(click);
+
+        assertEquals(Arrays.asList("consume:panel"), _received);
+    }
+
+    public void testPlainDispatchDoesNotPropagate() throws Exception {
+        listen(_root, "root");
+        listen(_button, "button");
+
+        _button.dispatchEvent(new TestEvent("click", this));
+
+        assertEquals(Arrays.asList("button"), _received);
+    }
+
+    public void testReparentingUpdatesThePath() throws Exception {
+        listen(_root, "root");
+        listen(_panel, "panel");
+        listen(_button, "button");
+        _button.propagateEvent(new TestEvent("click", this));
+        _received.clear();
+
+        _button.setParent(_root);
+        _button.propagateEvent(new TestEvent("click", this));
+
+        assertEquals(Arrays.asList("capture:root", "button", "root"), _received);
+    }
+
+    public void testReparentingAnAncestorUpdatesThePath() throws Exception {
+        EventDispatcher window = new EventDispatcher(LooperBinder.ANY, "window", this);
+        try {
+            listen(window, "window");
+            listen(_panel, "panel");
+            listen(_button, "button");
+            _button.propagateEvent(new TestEvent("click", this));
+            _received.clear();
+
+            // only the parent of the panel changes, the cached path of the button must not survive it
+            _panel.setParent(window);
+            _button.propagateEvent(new TestEvent("click", this));
+
+            assertEquals(Arrays.asList("capture:window", "capture:panel", "button", "panel", "window"), _received);
+        } finally {
+            window.destroy();
+        }
+    }
+
+    public void testEventLoopAncestorCapturesOnItsConsumer() throws Exception {
+        EventLoopDispatcher loop = new EventLoopDispatcher(this);
+        try {
+            final List<Thread> threads = new ArrayList<Thread>();
+            TestEvent click = new TestEvent("click", this);
+            loop.addCaptureListener(click, new EventListener(click, new Object() {
+                @SuppressWarnings("unused")
+                void onCapture(TestEvent event) {
+                    threads.add(Thread.currentThread());
+                }
+            }, "onCapture"));
+            _panel.setParent(loop);
+            loop.start();
+
+            _button.propagateEvent(new TestEvent("click", this));
+
+            assertTrue(loop.awaitQuiescence(5, TimeUnit.SECONDS));
+            assertEquals(1, threads.size());
+            assertNotSame(Thread.currentThread(), threads.get(0));
+        } finally {
+            loop.destroy();
+        }
+    }
+
+    public void testCycleIsRejected() {
+        try {
+            _root.setParent(_button);
+            fail("Expected IllegalArgumentException");
+        } catch (IllegalArgumentException e) {
+            // expected
+        }
+        assertNull(_root.getParent());
+    }
+
+    private void listen(EventDispatcher dispatcher, String name) throws NoSuchMethodException {
+        TestEvent click = new TestEvent("click", this);
+        Recorder recorder = new Recorder(name, _received);
+        dispatcher.addEventListener(click, recorder.listener(click, "onEvent"));
+        dispatcher.addCaptureListener(click, recorder.listener(click, "onCapture"));
+    }
+
+    static class Recorder {
+        private final String _name;
+        private final List<String> _received;
+
+        Recorder(String name, List<String> received) {
+            _name = name;
+            _received = received;
+        }
+
+        EventListener listener(IBaseEvent event, String methodName) throws NoSuchMethodException {
+            return new EventListener(event, this, methodName);
+        }
+
+        void onEvent(TestEvent event) {
+            _received.add(_name);
+        }
+
+        void onCapture(TestEvent event) {
+            _received.add("capture:" + _name);
+        }
+
+        void onCancellable(CancellableEvent event) {
+            _received.add(_name);
+        }
+
+        void onConsume(CancellableEvent event) {
+            _received.add("consume:" + _name);
+            event.stopPropagation();
+        }
+    }
+}
@@ -0,0 +1,208 @@
+package au.com.fantomdigital.fantomeventj;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import junit.framework.TestCase;
+
+public class RingBufferEventDispatcherTest extends TestCase {
+    private RingBufferEventDispatcher _satellite;
+    private AtomicInteger _batched;
+
+    @Override
+    protected void setUp() throws Exception {
+        super.setUp();
+
+        _batched = new AtomicInteger();
+        _satellite = new RingBufferEventDispatcher(8, 2, WaitStrategy.YIELD,
+                DispatchExecutors.daemonThreads("ring-test"), LooperBinder.ANY, "ring", this) {
+            @Override protected void onBatchEnd(int consumer, long firstSequence, int size) {
+                _batched.addAndGet(size);
+            }
+        };
+        _satellite.start();
+    }
+
+    @Override
+    protected void tearDown() throws Exception {
+        super.tearDown();
+
+        _satellite.destroy();
+    }
+
+    public void testEachListenerSeesEveryEventInOrder() throws Exception {
+        Recorder first = new Recorder();
+        Recorder second = new Recorder();
+        AsyncEventDispatcherTest.SequenceEvent event = new AsyncEventDispatcherTest.SequenceEvent(0, this);
+
+        _satellite.addEventListener(event, new EventListener(event, first, "onSequence"));
+        _satellite.addEventListener(event, new EventListener(event, second, "onSequence"));
+
+        for (int i = 0; i < 10000; i++) {
+            _satellite.dispatchEvent(new AsyncEventDispatcherTest.SequenceEvent(i, this));
+        }
+
+        assertTrue(_satellite.awaitQuiescence(10, TimeUnit.SECONDS));
+        assertEquals(0, _satellite.countPendingEvents());
+        assertEquals(10000, first.sequences.size());
+        assertEquals(10000, second.sequences.size());
+        for (int i = 0; i < 10000; i++) {
+            assertEquals(i, first.sequences.get(i).intValue());
+            assertEquals(i, second.sequences.get(i).intValue());
+        }
+        // both consumers walk every published event
+        assertEquals(20000, _batched.get());
+    }
+
+    public void testConsumerSurvivesHandlerErrors() throws Exception {
+        _satellite.destroy();
+        final AtomicInteger failures = new AtomicInteger();
+        _satellite = new RingBufferEventDispatcher(8, 1, WaitStrategy.YIELD,
+                DispatchExecutors.daemonThreads("ring-test"), LooperBinder.ANY, "ring", this) {
+            @Override protected void onDeliveryFailure(IBaseEvent event, EventListener listener, RuntimeException e) {
+                failures.incrementAndGet();
+            }
+        };
+        _satellite.start();
+
+        Recorder recorder = new Recorder();
+        AsyncEventDispatcherTest.SequenceEvent event = new AsyncEventDispatcherTest.SequenceEvent(0, this);
+        _satellite.addEventListener(event, new EventListener(event, recorder, "onErrorThenSequence"));
+
+        // more events than slots, so the producer needs the consumer to keep going past the errors
+        for (int i = 0; i < 100; i++) {
+            _satellite.dispatchEvent(new AsyncEventDispatcherTest.SequenceEvent(i, this));
+        }
+
+        assertTrue(_satellite.awaitQuiescence(10, TimeUnit.SECONDS));
+        assertEquals(10, failures.get());
+        assertEquals(90, recorder.sequences.size());
+    }
+
+    public void testOnlyTheFirstProducerMayDispatch() throws Exception {
+        final TestEvent event = new TestEvent("TestEvent", this);
+        _satellite.dispatchEvent(event);
+
+        final Throwable[] failure = new Throwable[1];
+        Thread other = new Thread() {
+            @Override public void run() {
+                try {
+                    _satellite.dispatchEvent(event);
+                } catch (IllegalStateException e) {
+                    failure[0] = e;
+                }
+            }
+        };
+        other.start();
+        other.join();
+
+        assertNotNull(failure[0]);
+    }
+
+    public void testFirstProducersRaceForTheRole() throws Exception {
+        final TestEvent event = new TestEvent("TestEvent", this);
+        final CountDownLatch start = new CountDownLatch(1);
+        final AtomicInteger accepted = new AtomicInteger();
+        Thread[] producers = new Thread[4];
+        for (int i = 0; i < producers.length; i++) {
+            producers[i] = new Thread() {
+                @Override public void run() {
+                    try {
+                        start.await();
+                        _satellite.dispatchEvent(event);
+                        accepted.incrementAndGet();
+                    } catch (InterruptedException e) {
+                        // ends the producer
+                    } catch (IllegalStateException e) {
+                        // lost the race
+                    }
+                }
+            };
+            producers[i].start();
+        }
+        start.countDown();
+        for (Thread producer : producers) {
+            producer.join();
+        }
+
+        assertEquals(1, accepted.get());
+    }
+
+    public void testFullRingFailsBeforeStart() throws Exception {
+        _satellite.destroy();
+        _satellite = new RingBufferEventDispatcher(8, 1, WaitStrategy.YIELD,
+                DispatchExecutors.daemonThreads("ring-test"), LooperBinder.ANY, "ring", this);
+        Recorder recorder = new Recorder();
+        AsyncEventDispatcherTest.SequenceEvent event = new AsyncEventDispatcherTest.SequenceEvent(0, this);
+        _satellite.addEventListener(event, new EventListener(event, recorder, "onSequence"));
+
+        for (int i = 0; i < 8; i++) {
+            _satellite.dispatchEvent(new AsyncEventDispatcherTest.SequenceEvent(i, this));
+        }
+        try {
+            _satellite.dispatchEvent(new AsyncEventDispatcherTest.SequenceEvent(8, this));
+            fail("Expected IllegalStateException");
+        } catch (IllegalStateException e) {
+            // expected, nothing drains the ring yet
+        }
+
+        _satellite.start();
+        assertTrue(_satellite.awaitQuiescence(10, TimeUnit.SECONDS));
+        assertEquals(8, recorder.sequences.size());
+    }
+
+    public void testStickyEventIsReplayedOnTheConsumer() throws Exception {
+        _satellite.dispatchStickyEvent(new AsyncEventDispatcherTest.SequenceEvent(5, this));
+        final Recorder late = new Recorder();
+        final AsyncEventDispatcherTest.SequenceEvent event = new AsyncEventDispatcherTest.SequenceEvent(0, this);
+
+        // registering is allowed from any thread, only the producer may publish
+        Thread registrar = new Thread() {
+            @Override public void run() {
+                try {
+                    _satellite.addEventListener(event, new EventListener(event, late, "onSequence"));
+                } catch (NoSuchMethodException e) {
+                    throw new IllegalStateException(e);
+                }
+            }
+        };
+        registrar.start();
+        registrar.join();
+
+        assertTrue(_satellite.awaitQuiescence(10, TimeUnit.SECONDS));
+        assertEquals(1, late.sequences.size());
+        assertEquals(5, late.sequences.get(0).intValue());
+        assertNotSame(registrar, late.thread);
+        assertNotSame(Thread.currentThread(), late.thread);
+    }
+
+    public void testBufferSizeMustBePowerOfTwo() {
+        try {
+            new RingBufferEventDispatcher(12, 1, WaitStrategy.PARK, DispatchExecutors.daemonThreads("ring-test"),
+                    LooperBinder.ANY, "ring", this);
+            fail("Expected IllegalArgumentException");
+        } catch (IllegalArgumentException e) {
+            // expected
+        }
+    }
+
+    static class Recorder {
+        final List<Integer> sequences = new ArrayList<Integer>();
+        volatile Thread thread;
+
+        void onSequence(AsyncEventDispatcherTest.SequenceEvent event) {
+            thread = Thread.currentThread();
+            sequences.add(event.sequence);
+        }
+
+        void onErrorThenSequence(AsyncEventDispatcherTest.SequenceEvent event) {
+            if (event.sequence % 10 == 0) {
+                throw new AssertionError("handler error " + event.sequence);
+            }
+            sequences.add(event.sequence);
+        }
+    }
+}
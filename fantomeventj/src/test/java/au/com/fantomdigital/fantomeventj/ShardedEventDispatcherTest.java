@@ -0,0 +1,125 @@
+package au.com.fantomdigital.fantomeventj;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+import junit.framework.TestCase;
+
+public class ShardedEventDispatcherTest extends TestCase {
+    private static final int KEYS = 16;
+    private static final int EVENTS = 2000;
+
+    private ShardedEventDispatcher _satellite;
+
+    @Override
+    protected void setUp() throws Exception {
+        super.setUp();
+
+        _satellite = new ShardedEventDispatcher(4, DispatchExecutors.daemonThreads("stripe-test"), "sharded", this);
+        _satellite.start();
+    }
+
+    @Override
+    protected void tearDown() throws Exception {
+        super.tearDown();
+
+        _satellite.destroy();
+    }
+
+    public void testEachKeyKeepsItsOrder() throws Exception {
+        final Recorder[] recorders = new Recorder[KEYS];
+        for (int k = 0; k < KEYS; k++) {
+            KeyedEvent event = new KeyedEvent(k, 0, this);
+            recorders[k] = new Recorder();
+            _satellite.addEventListener(event, new EventListener(event, recorders[k], "onKeyed"));
+        }
+
+        // one producer per key, all dispatching at once
+        Thread[] producers = new Thread[KEYS];
+        for (int k = 0; k < KEYS; k++) {
+            final int key = k;
+            producers[k] = new Thread() {
+                @Override public void run() {
+                    for (int i = 0; i < EVENTS; i++) {
+                        _satellite.dispatchEvent(new KeyedEvent(key, i, ShardedEventDispatcherTest.this));
+                    }
+                }
+            };
+            producers[k].start();
+        }
+        for (Thread producer : producers) {
+            producer.join();
+        }
+
+        assertTrue(_satellite.awaitQuiescence(10, TimeUnit.SECONDS));
+        for (int k = 0; k < KEYS; k++) {
+            assertEquals(EVENTS, recorders[k].sequences.size());
+            for (int i = 0; i < EVENTS; i++) {
+                assertEquals(i, recorders[k].sequences.get(i).intValue());
+            }
+        }
+    }
+
+    public void testKeysAreSpreadOverStripes() {
+        Set<Integer> stripes = new HashSet<Integer>();
+        for (int k = 0; k < KEYS; k++) {
+            int stripe = _satellite.stripeIndex(new KeyedEvent(k, 0, this));
+            assertTrue(stripe >= 0 && stripe < _satellite.getStripeCount());
+            assertEquals(stripe, _satellite.stripeIndex(new KeyedEvent(k, 1, this)));
+            stripes.add(stripe);
+        }
+        assertTrue(stripes.size() > 1);
+    }
+
+    public void testRemovedListenerIsNotCalled() throws Exception {
+        KeyedEvent event = new KeyedEvent(0, 0, this);
+        Recorder recorder = new Recorder();
+        EventListener listener = new EventListener(event, recorder, "onKeyed");
+        _satellite.addEventListener(event, listener);
+        _satellite.removeEventListener(event, listener);
+
+        _satellite.dispatchEvent(event);
+
+        assertTrue(_satellite.awaitQuiescence(10, TimeUnit.SECONDS));
+        assertTrue(recorder.sequences.isEmpty());
+    }
+
+    public void testRemoveAllOfAnEventClassClearsEveryStripe() throws Exception {
+        Set<Integer> stripes = new HashSet<Integer>();
+        Recorder recorder = new Recorder();
+        for (int k = 0; k < KEYS; k++) {
+            KeyedEvent event = new KeyedEvent(k, 0, this);
+            stripes.add(_satellite.stripeIndex(event));
+            _satellite.addEventListener(event, new EventListener(event, recorder, "onKeyed"));
+        }
+        assertTrue(stripes.size() > 1);
+
+        _satellite.removeAllEventListener(new KeyedEvent(0, 0, this));
+        for (int k = 0; k < KEYS; k++) {
+            _satellite.dispatchEvent(new KeyedEvent(k, k, this));
+        }
+
+        assertTrue(_satellite.awaitQuiescence(10, TimeUnit.SECONDS));
+        assertTrue(recorder.sequences.isEmpty());
+    }
+
+    static class KeyedEvent extends BaseEvent {
+        final int sequence;
+
+        KeyedEvent(int key, int sequence, Object target) {
+            super("key" + key, target);
+            this.sequence = sequence;
+        }
+    }
+
+    static class Recorder {
+        final List<Integer> sequences = new ArrayList<Integer>();
+
+        void onKeyed(KeyedEvent event) {
+            sequences.add(event.sequence);
+        }
+    }
+}
@@ -0,0 +1,128 @@
+package au.com.fantomdigital.fantomeventj;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import junit.framework.TestCase;
+
+public class StickyEventTest extends TestCase {
+    private EventDispatcher _satellite;
+    private List<String> _received;
+
+    @Override
+    protected void setUp() throws Exception {
+        super.setUp();
+
+        _satellite = new EventDispatcher(LooperBinder.ANY, this);
+        _received = new ArrayList<String>();
+    }
+
+    @Override
+    protected void tearDown() throws Exception {
+        super.tearDown();
+
+        _satellite.destroy();
+    }
+
+    private void onConfigHandler(TestEvent event) {
+        _received.add("config:" + event.getTarget());
+    }
+
+    private void onLateHandler(TestEvent event) throws NoSuchMethodException {
+        _received.add("late:" + event.getTarget());
+        _satellite.addEventListener(event, new EventListener(event, this, "onConfigHandler"));
+        _received.add("added");
+    }
+
+    public void testLateListenerReceivesLatestStickyEvent() throws Exception {
+        _satellite.dispatchStickyEvent(new TestEvent("config", "first"));
+        _satellite.dispatchStickyEvent(new TestEvent("config", "second"));
+
+        TestEvent event = new TestEvent("config", this);
+        _satellite.addEventListener(event, new EventListener(event, this, "onConfigHandler"));
+
+        assertEquals(Arrays.asList("config:second"), _received);
+    }
+
+    public void testStickyEventOnlyReplaysToSameClassAndName() throws Exception {
+        _satellite.dispatchStickyEvent(new TestEvent("config", "first"));
+        _satellite.dispatchStickyEvent(new BaseEvent("other", "second"));
+
+        TestEvent other = new TestEvent("other", this);
+        _satellite.addEventListener(other, new EventListener(other, this, "onConfigHandler"));
+
+        assertTrue(_received.isEmpty());
+        assertNotNull(_satellite.getStickyEvent(TestEvent.class, "config"));
+        assertNull(_satellite.getStickyEvent(TestEvent.class, "other"));
+    }
+
+    public void testRemovedStickyEventIsNotReplayed() throws Exception {
+        _satellite.dispatchStickyEvent(new TestEvent("config", "first"));
+        assertNotNull(_satellite.removeStickyEvent(TestEvent.class, "config"));
+
+        TestEvent event = new TestEvent("config", this);
+        _satellite.addEventListener(event, new EventListener(event, this, "onConfigHandler"));
+
+        assertTrue(_received.isEmpty());
+    }
+
+    public void testListenerAddedByHandlerReceivesStickyEventAfterIt() throws Exception {
+        TestEvent event = new TestEvent("config", this);
+        _satellite.addEventListener(event, new EventListener(event, this, "onLateHandler"));
+
+        _satellite.dispatchStickyEvent(new TestEvent("config", "first"));
+
+        assertEquals(Arrays.asList("late:first", "added", "config:first"), _received);
+    }
+
+    public void testDuplicateListenerIsNotReplayedAgain() throws Exception {
+        _satellite.dispatchStickyEvent(new TestEvent("config", "first"));
+
+        TestEvent event = new TestEvent("config", this);
+        _satellite.addEventListener(event, new EventListener(event, this, "onConfigHandler"));
+        _satellite.addEventListener(event, new EventListener(event, this, "onConfigHandler"));
+
+        assertEquals(1, _received.size());
+    }
+
+    private void onStoppingHandler(CancellableEvent event) {
+        _received.add("stopping:" + event.getTarget());
+        event.stopPropagation();
+    }
+
+    private void onCancellableHandler(CancellableEvent event) {
+        _received.add("config:" + event.getTarget());
+    }
+
+    public void testStoppedStickyEventIsNotReplayed() throws Exception {
+        CancellableEvent event = new CancellableEvent("config", this);
+        _satellite.addEventListener(event, new EventListener(event, this, "onStoppingHandler"));
+
+        _satellite.dispatchStickyEvent(new CancellableEvent("config", "first"));
+        _satellite.addEventListener(event, new EventListener(event, this, "onCancellableHandler"));
+
+        assertEquals(Arrays.asList("stopping:first"), _received);
+    }
+
+    public void testStickyEventFromAnotherThreadIsNotKept() throws Exception {
+        final EventDispatcher satellite = new EventDispatcher("confined", this);
+        satellite.countEventListeners(new TestEvent("config", this));
+        final Throwable[] failure = new Throwable[1];
+
+        Thread other = new Thread() {
+            @Override public void run() {
+                try {
+                    satellite.dispatchStickyEvent(new TestEvent("config", "first"));
+                } catch (IllegalStateException e) {
+                    failure[0] = e;
+                }
+            }
+        };
+        other.start();
+        other.join();
+
+        assertNotNull(failure[0]);
+        assertNull(satellite.getStickyEvent(TestEvent.class, "config"));
+    }
+}
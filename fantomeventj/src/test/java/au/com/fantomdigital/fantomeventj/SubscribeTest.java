@@ -0,0 +1,130 @@
+package au.com.fantomdigital.fantomeventj;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import junit.framework.TestCase;
+
+public class SubscribeTest extends TestCase {
+    private EventDispatcher _satellite;
+
+    @Override
+    protected void setUp() throws Exception {
+        super.setUp();
+
+        _satellite = new EventDispatcher(LooperBinder.ANY, this);
+    }
+
+    @Override
+    protected void tearDown() throws Exception {
+        super.tearDown();
+
+        _satellite.destroy();
+    }
+
+    public void testRegisterAddsEverySubscribeMethod() {
+        Screen screen = new Screen();
+        _satellite.register(screen);
+
+        _satellite.dispatchEvent(new TestEvent("started", this));
+        _satellite.dispatchEvent(new TestEvent("TestEvent", this));
+        _satellite.dispatchEvent(new BaseEvent("started", this));
+
+        assertEquals(2, _satellite.countEventListeners(new TestEvent("started", this)));
+        assertEquals(2, screen.received.size());
+        assertEquals("started:started", screen.received.get(0));
+        assertEquals("default:TestEvent", screen.received.get(1));
+    }
+
+    public void testUnregisterRemovesAndInvalidates() {
+        Screen screen = new Screen();
+        _satellite.register(screen);
+        _satellite.register(screen);
+        assertEquals(2, _satellite.countEventListeners(new TestEvent("started", this)));
+
+        _satellite.unregister(screen);
+        _satellite.dispatchEvent(new TestEvent("started", this));
+
+        assertEquals(0, _satellite.countEventListeners(new TestEvent("started", this)));
+        assertEquals(0, screen.received.size());
+    }
+
+    public void testOverriddenSubscribeMethodIsRegisteredOnce() {
+        DetailScreen screen = new DetailScreen();
+        _satellite.register(screen);
+
+        _satellite.dispatchEvent(new TestEvent("started", this));
+
+        assertEquals(1, screen.received.size());
+        assertEquals("detail:started", screen.received.get(0));
+    }
+
+    public void testHandlerMethodsAreCachedPerClass() {
+        assertSame(SubscriberMethods.forClass(Screen.class), SubscriberMethods.forClass(Screen.class));
+    }
+
+    public void testInvalidSubscribeMethodIsRejected() {
+        try {
+            _satellite.register(new Invalid());
+            fail("Expected IllegalArgumentException");
+        } catch (IllegalArgumentException e) {
+            // expected
+        }
+    }
+
+    public void testSubscribePriorityOrdersDelivery() {
+        Ranked ranked = new Ranked();
+        _satellite.register(ranked);
+
+        _satellite.dispatchEvent(new TestEvent("started", this));
+
+        assertEquals(2, ranked.received.size());
+        assertEquals("high", ranked.received.get(0));
+        assertEquals("low", ranked.received.get(1));
+    }
+
+    static class Ranked {
+        final List<String> received = new ArrayList<String>();
+
+        @Subscribe(name = "started")
+        void onLow(TestEvent event) {
+            received.add("low");
+        }
+
+        @Subscribe(name = "started", priority = 1)
+        void onHigh(TestEvent event) {
+            received.add("high");
+        }
+    }
+
+    static class Screen {
+        final List<String> received = new ArrayList<String>();
+
+        @Subscribe(name = "started")
+        void onStarted(TestEvent event) {
+            received.add("started:" + event.getName());
+        }
+
+        @Subscribe
+        private void onDefault(TestEvent event) {
+            received.add("default:" + event.getName());
+        }
+
+        void notSubscribed(TestEvent event) {
+            received.add("never");
+        }
+    }
+
+    static class DetailScreen extends Screen {
+        @Subscribe(name = "started")
+        @Override void onStarted(TestEvent event) {
+            received.add("detail:" + event.getName());
+        }
+    }
+
+    static class Invalid {
+        @Subscribe
+        void onNothing(String event) {
+        }
+    }
+}
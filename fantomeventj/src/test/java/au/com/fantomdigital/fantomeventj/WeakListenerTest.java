@@ -0,0 +1,146 @@
+package au.com.fantomdigital.fantomeventj;
+
+import java.lang.ref.WeakReference;
+import java.util.ArrayList;
+import java.util.List;
+
+import junit.framework.TestCase;
+
+public class WeakListenerTest extends TestCase {
+    private static final List<String> RECEIVED = new ArrayList<String>();
+
+    private EventDispatcher _satellite;
+
+    @Override
+    protected void setUp() throws Exception {
+        super.setUp();
+
+        RECEIVED.clear();
+        _satellite = new EventDispatcher(LooperBinder.ANY, this);
+        _satellite.setWeakListeners(true);
+    }
+
+    @Override
+    protected void tearDown() throws Exception {
+        super.tearDown();
+
+        _satellite.destroy();
+    }
+
+    public void testWeakListenerReceivesEventsWhileReachable() throws Exception {
+        Screen screen = new Screen("screen");
+        _satellite.addEventListener(new TestEvent("started", this),
+                new EventListener(new TestEvent("started", this), screen, "onStarted"));
+        _satellite.register(screen);
+
+        _satellite.dispatchEvent(new TestEvent("started", this));
+        _satellite.dispatchEvent(new TestEvent("subscribed", this));
+
+        assertEquals(2, RECEIVED.size());
+        assertEquals(0, _satellite.countPurgedListeners());
+    }
+
+    public void testUnregisterRemovesWeakListeners() {
+        Screen screen = new Screen("screen");
+        _satellite.register(screen);
+        _satellite.unregister(screen);
+
+        _satellite.dispatchEvent(new TestEvent("subscribed", this));
+
+        assertEquals(0, _satellite.countEventListeners(new TestEvent("subscribed", this)));
+        assertEquals(0, RECEIVED.size());
+    }
+
+    public void testCollectedTargetIsPurged() throws Exception {
+        WeakReference<Screen> reference = addCollectableScreen();
+        awaitCollection(reference);
+
+        for (int i = 0; i < 100 && _satellite.countPurgedListeners() < 2; i++) {
+            _satellite.dispatchEvent(new TestEvent("started", this));
+            Thread.sleep(10);
+        }
+
+        assertEquals(2, _satellite.countPurgedListeners());
+        assertEquals(0, _satellite.countEventListeners(new TestEvent("started", this)));
+        assertEquals(0, RECEIVED.size());
+    }
+
+    public void testTargetOfItsOwnEventIsCollected() throws Exception {
+        WeakReference<Screen> reference = addSelfTargetedScreen();
+        awaitCollection(reference);
+
+        _satellite.dispatchEvent(new TestEvent("started", this));
+
+        assertEquals(0, RECEIVED.size());
+    }
+
+    public void testStrongListenersAreKept() throws Exception {
+        _satellite.setWeakListeners(false);
+        WeakReference<Screen> reference = addCollectableScreen();
+
+        System.gc();
+        _satellite.dispatchEvent(new TestEvent("started", this));
+
+        assertNotNull(reference.get());
+        assertEquals(1, RECEIVED.size());
+    }
+
+    public void testIndexedListenerIsWeakenedWithoutReflection() throws Exception {
+        Screen screen = new Screen("indexed");
+        // no such method, so any reflective lookup of the handler fails
+        _satellite.addEventListener(new TestEvent("started", this),
+                new EventListener(TestEvent.class, "started", screen, Screen.class, "onIndexed",
+                        new TargetEventInvoker() {
+                            //@Override
+                            public void invoke(Object target, Object event) throws Throwable {
+                                ((Screen) target).onStarted((TestEvent) event);
+                            }
+                        }, 0));
+
+        _satellite.dispatchEvent(new TestEvent("started", this));
+
+        assertEquals(1, RECEIVED.size());
+        assertEquals("indexed:started", RECEIVED.get(0));
+    }
+
+    private WeakReference<Screen> addCollectableScreen() throws Exception {
+        Screen screen = new Screen("collected");
+        _satellite.addEventListener(new TestEvent("started", this),
+                new EventListener(new TestEvent("started", this), screen, "onStarted"));
+        _satellite.register(screen);
+        return new WeakReference<Screen>(screen);
+    }
+
+    private WeakReference<Screen> addSelfTargetedScreen() throws Exception {
+        Screen screen = new Screen("self");
+        // the usual way, the screen is the target of the event it listens to
+        TestEvent event = new TestEvent("started", screen);
+        _satellite.addEventListener(event, new EventListener(event, screen, "onStarted"));
+        return new WeakReference<Screen>(screen);
+    }
+
+    private static void awaitCollection(WeakReference<?> reference) throws InterruptedException {
+        for (int i = 0; i < 100 && reference.get() != null; i++) {
+            System.gc();
+            Thread.sleep(10);
+        }
+        assertNull(reference.get());
+    }
+
+    static class Screen {
+        private final String _name;
+
+        Screen(String name) {
+            _name = name;
+        }
+
+        void onStarted(TestEvent event) {
+            RECEIVED.add(_name + ":" + event.getName());
+        }
+
+        @Subscribe(name = "subscribed")
+        void onSubscribed(TestEvent event) {
+            RECEIVED.add(_name + ":" + event.getName());
+        }
+    }
+}
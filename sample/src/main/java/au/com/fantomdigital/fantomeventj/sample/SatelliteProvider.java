@@ -17,6 +17,7 @@
 package au.com.fantomdigital.fantomeventj.sample;
 
 import au.com.fantomdigital.fantomeventj.*;
+import au.com.fantomdigital.fantomeventj.android.AndroidLooperBinder;
 
 /**
  * Project: Satellite for the sample.
@@ -24,7 +25,7 @@ import au.com.fantomdigital.fantomeventj.*;
  * are handled seperately from the UI Thread.
  */
 public final class SatelliteProvider {
-  private static final EventDispatcher SATELLITE = new EventDispatcher();
+  private static final EventDispatcher SATELLITE = new EventDispatcher(AndroidLooperBinder.MAIN, "satellite", SatelliteProvider.class);
 
   public static EventDispatcher getInstance() {
     return SATELLITE;